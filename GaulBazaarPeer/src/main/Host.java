@@ -0,0 +1,75 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package main;
+
+// Import statements
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+
+import peer.Buyer;
+import peer.ExecutorMode;
+import peer.MemoryNetwork;
+import peer.PeerConfig;
+import peer.PeerId;
+import peer.PeerTable;
+import peer.SearchMode;
+import peer.Seller;
+import peer.Transport;
+
+/*
+ * Host Main class that runs many peers in a single JVM for large simulations. It registers peers
+ * with the Registry until the hard-coded number of peers is reached or the Registry is full, and
+ * connects them through a MemoryNetwork instead of TCP connections. The request handlers of all
+ * peers run on the network's scheduler and the timers of all peers on one shared scheduler.
+ */
+public class Host {
+	
+	//Main method
+	@SuppressWarnings("unused")
+	public static void main(String[] args) throws IOException{
+		
+		// Define the number of peers hosted in this JVM, the Registry Server must admit at least as
+		// many peers, and the table the PeerIds of every hosted peer are interned in
+		int peerCount = 1000;
+		PeerTable peers = new PeerTable();
+		
+		// Run parameters shared by every hosted peer, the request handlers run on platform threads
+		// or on virtual threads (Java 21 and later)
+		PeerConfig config = new PeerConfig();
+		config.executorMode = ExecutorMode.PLATFORM;
+		config.searchMode = SearchMode.EXPANDING_RING;
+		config.scheduler = Executors.newScheduledThreadPool(4);
+		
+		// Create the MemoryNetwork the hosted peers send their frames through, its scheduler has a
+		// platform thread per processor
+		MemoryNetwork network = new MemoryNetwork(config.executorMode, Runtime.getRuntime().availableProcessors());
+		
+		// Register and initialize the peers one after the other, randomly as buyers or sellers
+		for(int i = 0; i < peerCount; i++){
+			
+			// Join the network through the Registry Server, IP address and port must be hard-coded.
+			// Stop adding peers if maximum number of peers has already been reached.
+			Registration registration = Registration.register(
+					new InetSocketAddress("98.217.50.221", 10250), peers, config); // Must be hard-coded with RegistryServer's IP
+			if(registration == null){
+				break;
+			}
+			PeerId peerID = registration.getPeerID();
+			Transport transport = network.newTransport(peerID);
+			String outputFile = System.getProperty("user.dir") + File.separator + "Peer" + peerID.getIndex();
+			if(config.newRandom(peerID.getIndex(), "Role").nextDouble() < 0.5){
+				System.out.println("Buyer ID: " + peerID);
+				Buyer buyer = new Buyer(peerID, registration.getNeighbors(), peers, registration.getHopcount(), outputFile, config, transport);
+			}
+			else{
+				System.out.println("Seller ID: " + peerID);
+				Seller seller = new Seller(peerID, registration.getNeighbors(), peers, outputFile + "sellerOutput.txt", config, transport);
+			}
+		}
+		
+	}
+
+}
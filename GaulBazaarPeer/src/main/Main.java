@@ -4,21 +4,25 @@
 package main;
 
 // Import statements
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.Socket;
+import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.Random;
 
 import peer.Buyer;
-import peer.PeerIDParser;
+import peer.ExecutorMode;
+import peer.PeerConfig;
+import peer.PeerId;
+import peer.PeerTable;
+import peer.SearchMode;
 import peer.Seller;
+import peer.ServerMode;
 
 /*
  * Peer Main class that contacts the Registry as a client to receive peer information,
- * decides if the peer is a buyer or seller, and then initializes the peer.
+ * decides if the peer is a buyer or seller, and then initializes the peer. Every peer runs in
+ * a JVM of its own; the Host class runs many peers in one JVM instead.
  */
 public class Main {
 	
@@ -26,58 +30,56 @@ public class Main {
 	@SuppressWarnings("unused")
 	public static void main(String[] args) throws IOException{
 		
-		// Variables used for initializing peers including maximum number of peers, peerID
-		// neighbor peerIDs, and an peerID parser.
+		// Variables used for initializing peers including the default hopcount, PeerId,
+		// neighbor PeerIds, and the table the PeerIds are interned in.
 		int N;
-		String peerID;
-		ArrayList<String> neighbors = new ArrayList<>();
-		PeerIDParser idParser = new PeerIDParser();
+		PeerId peerID;
+		ArrayList<PeerId> neighbors;
+		PeerTable peers = new PeerTable();
 		
-		// Create a socket connection with the Registry Server, IP address and port must be
-		// hard-coded
-		Socket regServer = new Socket("98.217.50.221", 10250); // Must be hard-coded with RegistryServer's IP
+		// Run parameters for this peer, the listening server either uses a thread per connection
+		// or a small number of selector event loop threads, and runs its request handlers on
+		// platform threads or on virtual threads (Java 21 and later)
+		PeerConfig config = new PeerConfig();
+		config.serverMode = ServerMode.SELECTOR;
+		config.eventLoopThreads = 2;
+		config.executorMode = ExecutorMode.PLATFORM;
 		
-		// Create a BufferedReader object to receive information from the Registry Server
-		BufferedReader msgFromServer = new BufferedReader(
-                new InputStreamReader(regServer.getInputStream()));
+		// Buyers either flood every lookup with the registry's hopcount, search in expanding
+		// rings that start at a hopcount of 1, send random walkers, ask the registry's item
+		// directory for sellers or resolve sellers through a Chord ring of the peers
+		config.searchMode = SearchMode.EXPANDING_RING;
 		
-		// Read peerID from the Registry Server, terminate if maximum number of peers has 
-		// already been reached
-		peerID = msgFromServer.readLine();
-		if(peerID.equals("terminate")){
-			regServer.close();
-			return;
-		}
+		// Frames cross the network unchanged, a LinkModel such as a LinkProfile would emulate the
+		// delay, jitter, bandwidth and loss of wide-area links on top of it instead
+		config.linkModel = null;
 		
-		// Iterate through all neighbor peerIDs from the Registry Server and add to the 
-		// neighbors ArrayList
-		String neighborID = msgFromServer.readLine();
-		while(!neighborID.equals("end")){
-			neighbors.add(neighborID);
-			neighborID = msgFromServer.readLine();
+		// Join the network through the Registry Server, IP address and port must be hard-coded.
+		// Terminate if maximum number of peers has already been reached.
+		Registration registration = Registration.register(
+				new InetSocketAddress("98.217.50.221", 10250), peers, config); // Must be hard-coded with RegistryServer's IP
+		if(registration == null){
+			return;
 		}
-		
-		// Read the maximum number of peers from Registry Server
-		N = Integer.parseInt(msgFromServer.readLine());
-		
-		// Close connection with Registry Server
-		regServer.close();
+		peerID = registration.getPeerID();
+		neighbors = registration.getNeighbors();
+		N = registration.getHopcount();
 
 		
-		// Initialize a Random object for determining if this peer is a buys or seller as well as
-		// an outputFile string for the peer
-		Random rand = new Random();
+		// Initialize a Random object for determining if this peer is a buys or seller, seeded by
+		// the PeerConfig, as well as an outputFile string for the peer
+		Random rand = config.newRandom(peerID.getIndex(), "Role");
 		String outputFile = System.getProperty("user.dir"); 
-		outputFile += File.separator + "Peer" + idParser.getPeerIndex(peerID);
+		outputFile += File.separator + "Peer" + peerID.getIndex();
 		
 		// Randomly determine if the peer is a buyer or seller and initialize the corresponding peer object
 		if(rand.nextDouble() < 0.5){
 			System.out.println("Buyer ID: " + peerID);
-			Buyer buyer = new Buyer(peerID, neighbors, idParser, N, outputFile);
+			Buyer buyer = new Buyer(peerID, neighbors, peers, N, outputFile, config);
 		}
 		else{
 			System.out.println("Seller ID: " + peerID);
-			Seller seller = new Seller(peerID, neighbors, idParser, outputFile + "sellerOutput.txt");
+			Seller seller = new Seller(peerID, neighbors, peers, outputFile + "sellerOutput.txt", config);
 		}
 		
 	}
@@ -0,0 +1,109 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package main;
+
+// Import statements
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+
+import peer.Frame;
+import peer.FrameCodec;
+import peer.PeerConfig;
+import peer.PeerId;
+import peer.PeerTable;
+
+/*
+ * The Registration class contacts the Registry as a client to join the network and holds the
+ * peer information the Registry sends back: the new peer's PeerId, its neighbors and the default
+ * hopcount. The forwarding rule, the number of peers and the Registry's address are stored in the
+ * PeerConfig.
+ */
+public class Registration {
+
+	// Global variables
+	private PeerId peerID; // The new peer's PeerId
+	private ArrayList<PeerId> neighbors; // PeerIds of the new peer's neighbors
+	private int hopcount; // Default hopcount of lookups, the diameter of the registry's overlay
+
+	// Constructor method that takes in the peer information sent by the Registry.
+	private Registration(PeerId peerID, ArrayList<PeerId> neighbors, int hopcount) {
+		this.peerID = peerID;
+		this.neighbors = neighbors;
+		this.hopcount = hopcount;
+	}
+
+	// The register method asks the Registry at the provided address to join the network and reads
+	// the new peer's information, interning every PeerId in the table. Returns null if the maximum
+	// number of peers has already been reached.
+	public static Registration register(InetSocketAddress registry, PeerTable peers, PeerConfig config) throws IOException{
+		
+		// Create a socket connection with the Registry Server
+		Socket regServer = new Socket(registry.getAddress(), registry.getPort());
+		config.registryAddress = registry;
+		try{
+			
+			// Ask the Registry Server to join the network and create a DataInputStream object to
+			// receive frames from the Registry Server
+			FrameCodec.write(new Frame(Frame.REGISTER, 0, 0, 0, 0, 0, new byte[0]), regServer.getOutputStream());
+			DataInputStream msgFromServer = new DataInputStream(
+					new BufferedInputStream(regServer.getInputStream()));
+			
+			// Read this peer's PeerId from the Registry Server, give up if maximum number of peers
+			// has already been reached
+			Frame frame = FrameCodec.read(msgFromServer);
+			if(frame == null || frame.getType() != Frame.PEER_ID){
+				return null;
+			}
+			PeerId peerID = peers.intern(frame);
+			
+			// Iterate through all neighbor frames from the Registry Server and add their PeerIds
+			// to the neighbors ArrayList
+			ArrayList<PeerId> neighbors = new ArrayList<>();
+			frame = FrameCodec.read(msgFromServer);
+			while(frame != null && frame.getType() == Frame.NEIGHBOR){
+				neighbors.add(peers.intern(frame));
+				frame = FrameCodec.read(msgFromServer);
+			}
+
+			// Fail the registration if the Registry Server closed the connection or sent anything
+			// but the end frame after the neighbors
+			if(frame == null || frame.getType() != Frame.END){
+				throw new IOException("Registry " + registry + " closed the registration before sending its end frame");
+			}
+
+			// Read the default hopcount, the diameter of the registry's overlay, the overlay's
+			// forwarding rule and the number of peers, which the ring has ids for, from the
+			// Registry Server's end frame
+			config.directionalForwarding = frame.getItem() == Frame.FORWARD_DIRECTIONAL;
+			config.ringSize = frame.getSeqNum();
+			config.peerCount = frame.getSeqNum();
+			return new Registration(peerID, neighbors, frame.getHopcount());
+		}
+		finally{
+			
+			// Close connection with Registry Server
+			regServer.close();
+		}
+	}
+
+	// Getter method for the new peer's PeerId
+	public PeerId getPeerID(){
+		return this.peerID;
+	}
+
+	// Getter method for the new peer's neighbors
+	public ArrayList<PeerId> getNeighbors(){
+		return this.neighbors;
+	}
+
+	// Getter method for the default hopcount
+	public int getHopcount(){
+		return this.hopcount;
+	}
+
+}
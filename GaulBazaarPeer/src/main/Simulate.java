@@ -0,0 +1,170 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package main;
+
+// Import statements
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import peer.Buyer;
+import peer.DelayDistribution;
+import peer.ExecutorMode;
+import peer.Frame;
+import peer.LinkModel;
+import peer.LinkProfile;
+import peer.PeerConfig;
+import peer.PeerId;
+import peer.PeerTable;
+import peer.ResponseTimes;
+import peer.SearchMode;
+import peer.Seller;
+import sim.EventQueue;
+import sim.Overlay;
+import sim.SimNetwork;
+import sim.Simulation;
+import sim.VirtualScheduler;
+
+/*
+ * Simulate Main class that runs the marketplace as a deterministic discrete-event simulation. The
+ * peers are linked by a seeded small-world Overlay instead of registering with the Registry and
+ * exchange frames over a SimNetwork. Every timer, delivery and request of every peer is an event
+ * on a virtual clock, so simulated hours take as long as their events do and a run with the same
+ * seed always gives the same results. The peers are spread over regions of a wide-area network
+ * whose links are emulated. With one partition all events run on the main thread,
+ * with more the peers are split into partitions that run in parallel and give the same results.
+ * The number of peers, the simulated time in seconds, the seed and the number of partitions may
+ * be given as arguments.
+ */
+public class Simulate {
+
+	//Main method
+	public static void main(String[] args) throws IOException{
+
+		// Define the number of peers, the simulated time in milliseconds, the seed of the run and
+		// the number of partitions, and the table the PeerIds of every simulated peer are
+		// interned in
+		int peerCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		long duration = (args.length > 1 ? Long.parseLong(args[1]) : 3600) * 1000;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+		int partitionCount = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+		PeerTable peers = new PeerTable();
+
+		// Create the Simulation and the SimNetwork, every link delays a frame by 5ms, which is
+		// the lookahead of the partitions
+		Simulation simulation = new Simulation(peerCount, partitionCount, 5, seed);
+		SimNetwork network = new SimNetwork(simulation);
+
+		// Run parameters of the peers of every partition, whose links are those of a wide-area
+		// network of 8 regions
+		LinkModel wideArea = wideArea(peerCount, 8);
+		PeerConfig[] configs = new PeerConfig[simulation.getPartitions()];
+		for(int p = 0; p < configs.length; p++){
+			configs[p] = configure(simulation.getPartition(p), seed, peerCount, wideArea);
+		}
+
+		// Link the peers and derive the default hopcount from the overlay's diameter
+		int[][] overlay = Overlay.build(peerCount, 4, 0.1, simulation.getRandom());
+		int N = Overlay.hopcount(overlay);
+		System.out.println("Overlay of " + peerCount + " peers, hopcount " + N);
+
+		// Intern the PeerIds of all peers, which listen on the loopback address
+		byte[] addr = InetAddress.getLoopbackAddress().getAddress();
+		for(int i = 0; i < peerCount; i++){
+			peers.intern(new Frame(Frame.PEER_ID, 0, 0, 0, i, 10251 + i % 50000, addr));
+		}
+
+		// Initialize the peers, randomly as buyers or sellers
+		String outputDir = System.getProperty("user.dir") + File.separator + "Peer";
+		List<Seller> sellers = new ArrayList<>();
+		int buyers = 0;
+		for(int i = 0; i < peerCount; i++){
+			PeerId peerID = peers.get(i);
+			ArrayList<PeerId> neighbors = new ArrayList<>(overlay[i].length);
+			for(int neighbor : overlay[i]){
+				neighbors.add(peers.get(neighbor));
+			}
+			PeerConfig config = configs[simulation.partitionOf(i)];
+			EventQueue events = simulation.getQueue(i);
+			events.enter(i);
+			if(config.newRandom(i, "Role").nextDouble() < 0.5){
+				new Buyer(peerID, neighbors, peers, N, outputDir + i, config, network.newTransport(peerID));
+				buyers++;
+			}
+			else{
+				sellers.add(new Seller(peerID, neighbors, peers, outputDir + i + "sellerOutput.txt", config, network.newTransport(peerID)));
+			}
+			events.enter(-1);
+		}
+
+		// Run the simulation and print the totals of the run
+		long start = System.currentTimeMillis();
+		long run = simulation.run(duration);
+		long elapsed = Math.max(1, System.currentTimeMillis() - start);
+		long sold = 0;
+		long expired = 0;
+		for(Seller seller : sellers){
+			sold += seller.getItemStore().getCommittedLeases();
+			expired += seller.getItemStore().getExpiredLeases();
+		}
+		System.out.println(buyers + " buyers, " + sellers.size() + " sellers, " + duration / 1000 + "s simulated in " + elapsed + "ms on " +
+				simulation.getPartitions() + " partition(s), " + simulation.getWindows() + " windows");
+		System.out.println(run + " events, " + run * 1000 / elapsed + " events/s, " + network.getDelivered() + " frames delivered, " +
+				network.getLost() + " lost");
+		System.out.println(sold + " items sold, " + expired + " leases expired");
+
+		// Merge the response times of the buyers of every partition and print their percentiles
+		ResponseTimes responseTimes = new ResponseTimes();
+		for(PeerConfig config : configs){
+			responseTimes.merge(config.responseTimes);
+		}
+		System.out.println(responseTimes);
+	}
+
+	// The configure method returns the run parameters of the peers run by the provided EventQueue,
+	// whose links follow the provided LinkModel. Handlers and timers run as events on the queue's
+	// virtual clock, buyers are driven by events and buy until the simulation ends, and the peers
+	// only report their totals. The buyers of the partition share their ResponseTimes. Lookups
+	// are flooded to every neighbor in the overlay. Searches through the registry's directory or
+	// a Chord ring aren't simulated.
+	private static PeerConfig configure(EventQueue events, long seed, int peerCount, LinkModel links){
+		PeerConfig config = new PeerConfig();
+		config.executorMode = ExecutorMode.INLINE;
+		config.searchMode = SearchMode.EXPANDING_RING;
+		config.scheduler = new VirtualScheduler(events);
+		config.clock = events;
+		config.seed = seed;
+		config.eventDriven = true;
+		config.writeOutput = false;
+		config.purchases = Integer.MAX_VALUE;
+		config.directionalForwarding = false;
+		config.peerCount = peerCount;
+		config.linkModel = links;
+		config.responseTimes = new ResponseTimes();
+		return config;
+	}
+
+	// The wideArea method returns a LinkModel that places the peers in the provided number of
+	// regions by consecutive peer indices. Links within a region are fast and reliable, links
+	// between regions are slower the further apart the regions are, have a heavy-tailed jitter,
+	// less bandwidth and lose a frame now and then.
+	private static LinkModel wideArea(final int peerCount, final int regions){
+		final LinkProfile local = new LinkProfile(2, 0.5, DelayDistribution.NORMAL, 12500000, 0.0);
+		final LinkProfile[] remote = new LinkProfile[regions];
+		for(int distance = 1; distance < regions; distance++){
+			remote[distance] = new LinkProfile(20 + 15 * distance, 5, DelayDistribution.PARETO, 1250000, 0.001);
+		}
+		return new LinkModel(){
+			public LinkProfile getProfile(PeerId source, PeerId destination){
+				int from = (int) ((long) source.getIndex() * regions / peerCount);
+				int to = (int) ((long) destination.getIndex() * regions / peerCount);
+				int distance = Math.abs(from - to);
+				return distance == 0 ? local : remote[Math.min(distance, regions - distance)];
+			}
+		};
+	}
+
+}
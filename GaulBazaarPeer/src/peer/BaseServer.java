@@ -4,41 +4,76 @@
 package peer;
 
 // Import statements
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
-import java.net.ServerSocket;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /*
  * The BaseServer abstract class provides a basic implementation that can be extended
  * to create a server that handles multiple requests simultaneously. It also logs when
- * the BaseServer is listening and on what port.
+ * the BaseServer is listening and on what port. Depending on its ServerMode the server
+ * either creates a thread for every client that connects to it or serves all clients from
+ * a small number of selector event loops. Either way every Frame a client sends is handed to
+ * the request handler provided by the subclass, which runs on the server's handler pool so that
+ * a slow handler never holds up the later frames of its connection. A client may keep its
+ * connection open and send any number of frames over it, which may be handled in any order. The
+ * ExecutorMode decides if clients and handlers are served by platform threads or by virtual
+ * threads.
  */
 public abstract class BaseServer {
-	
+
 	// Global log and listening socket
 	protected Logger log;
-	private ServerSocket socket;
-	
+	private ServerSocketChannel socket;
+	private ServerMode mode; // How clients are served
+	private int eventLoopThreads; // Number of selector threads used in SELECTOR mode
+	private ExecutorMode executorMode; // What kind of threads serve clients and handlers
+	private ExecutorService handlerPool; // Runs request handlers
+
 	// Constructor method that creates a BaseServer that listens on a socket
-	// with the provided port number
+	// with the provided port number and serves every client with its own thread
 	public BaseServer(int portNum){
-		
+		this(portNum, ServerMode.THREAD, 1, ExecutorMode.PLATFORM);
+	}
+
+	// Constructor method that creates a BaseServer that listens on a socket with the
+	// provided port number and serves clients according to the provided ServerMode
+	// using threads of the provided ExecutorMode
+	public BaseServer(int portNum, ServerMode mode, int eventLoopThreads, ExecutorMode executorMode){
+
 		this.log = Logger.getGlobal();
+		this.mode = mode;
+		this.eventLoopThreads = Math.max(1, eventLoopThreads);
+		this.executorMode = executorMode;
 		try{
-			this.socket = new ServerSocket(portNum);
-		} 
+			this.socket = ServerSocketChannel.open();
+			this.socket.bind(new InetSocketAddress(portNum));
+		}
 		catch(IOException e){ System.out.println(e.getMessage()); }
 	}
-	
+
 	// The enable method activates the server so that it starts listening on this
-	// server's socket and creates a thread whenever a client connects to it
+	// server's socket and serves every client that connects to it
 	public void enable() throws IOException{
 		try{
-			log.log(Level.INFO, "Server Listening on Port " + socket.getLocalPort());
-			while(true){
-				getServerThread(this.socket.accept()).start();
+			log.log(Level.INFO, "Server Listening on Port " + getPort() + " (" + mode + ", " + executorMode + ")");
+			this.handlerPool = HandlerExecutors.newHandlerPool(executorMode);
+			if(mode == ServerMode.SELECTOR){
+				runEventLoops();
+			}
+			else{
+				Executor clientThreads = HandlerExecutors.newPerTaskExecutor(executorMode);
+				while(true){
+					clientThreads.execute(new ClientReader(this.socket.socket().accept()));
+				}
 			}
 		}
 		catch(IOException e){ System.out.println(e.getMessage()); }
@@ -46,14 +81,97 @@ public abstract class BaseServer {
 			socket.close();
 		}
 	}
-	
-	
+
+	// The runEventLoops method creates the selector event loops, the first of which accepts
+	// connections and runs on the calling thread while the rest run on threads of their own.
+	private void runEventLoops() throws IOException{
+		FrameDispatcher dispatcher = new FrameDispatcher();
+		EventLoop[] loops = new EventLoop[eventLoopThreads];
+		for(int i = 0; i < loops.length; i++){
+			loops[i] = new EventLoop(dispatcher);
+		}
+		loops[0].listen(this.socket, loops);
+		for(int i = 1; i < loops.length; i++){
+			new Thread(loops[i], "EventLoop-" + getPort() + "-" + i).start();
+		}
+		loops[0].run();
+	}
+
 	// Getter method for this server's listening port number
-	public void getPort(){
-		this.socket.getLocalPort();
+	public int getPort(){
+		return this.socket.socket().getLocalPort();
+	}
+
+	// Abstract method that an subclass will implement to handle an incoming frame from a client
+	public abstract Runnable getRequestHandler(Frame frame, ClientConnection client);
+
+	/*
+	 * The FrameDispatcher class receives frames from the event loops and runs a request handler
+	 * for each of them.
+	 */
+	private class FrameDispatcher implements EventLoop.Listener {
+
+		// Nothing to do until the client sends a frame
+		public void connectionAccepted(EventLoop.Connection connection){}
+
+		// Handle the frame
+		public void frameReceived(EventLoop.Connection connection, Frame frame){
+			handlerPool.execute(getRequestHandler(frame, connection));
+		}
+
 	}
-	
-	// Abstract method that an subclass will implement to handle incoming client requests
-	public abstract Thread getServerThread(Socket client);
-	
+
+	/*
+	 * The ClientReader class serves a single client in THREAD mode. It reads every frame the
+	 * client sends on its own thread and hands the request handler for each of them to the
+	 * handler pool until the client closes the connection.
+	 */
+	private class ClientReader implements Runnable, ClientConnection {
+
+		// Global variables for the client socket and its outgoing message channel
+		private Socket client;
+		private OutputStream msgToClient;
+
+		// Constructor method that takes in the socket of an accepted client
+		public ClientReader(Socket client){
+			this.client = client;
+		}
+
+		// Run method that reads the client's frames and handles them
+		public void run(){
+			try{
+				DataInputStream msgFromClient = new DataInputStream(
+						new BufferedInputStream(client.getInputStream()));
+				Frame frame = FrameCodec.read(msgFromClient);
+				while(frame != null){
+					handlerPool.execute(getRequestHandler(frame, this));
+					frame = FrameCodec.read(msgFromClient);
+				}
+			}
+			catch(IOException e){ System.out.println(e.getMessage()); }
+			finally{
+				close();
+			}
+		}
+
+		// Sends a frame to the client
+		public synchronized void send(Frame frame) throws IOException{
+			if(msgToClient == null){
+				msgToClient = client.getOutputStream();
+			}
+			FrameCodec.write(frame, msgToClient);
+		}
+
+		// Getter method for the client's socket address
+		public InetSocketAddress getRemoteAddress(){
+			return (InetSocketAddress) client.getRemoteSocketAddress();
+		}
+
+		// Closes the client socket
+		public void close(){
+			try{ client.close(); } catch(IOException e){ }
+		}
+
+	}
+
 }
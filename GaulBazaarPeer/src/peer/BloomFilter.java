@@ -0,0 +1,51 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+/*
+ * The BloomFilter class works on 32 bit Bloom filters of item ids held in an int, so that a
+ * filter fits in a single field of a frame. Every item sets two bits chosen by mixing its id.
+ * A filter never misses an item that was added, but may claim items that weren't; FULL claims
+ * every item and stands for a set of items that isn't known.
+ */
+public class BloomFilter {
+
+	// Filters without and with every bit set
+	public static final int EMPTY = 0;
+	public static final int FULL = -1;
+
+	// Number of bits every item sets
+	private static final int HASHES = 2;
+
+	// Constructor method that takes no parameters.
+	public BloomFilter() {}
+
+	// The add method returns the filter with the provided item id added.
+	public static int add(int filter, int item){
+		for(int i = 0; i < HASHES; i++){
+			filter |= 1 << bit(item, i);
+		}
+		return filter;
+	}
+
+	// The mightContain method returns false if the item id was certainly not added to the filter.
+	public static boolean mightContain(int filter, int item){
+		for(int i = 0; i < HASHES; i++){
+			if((filter & (1 << bit(item, i))) == 0){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// The bit method mixes an item id with the number of the hash and returns a bit position.
+	private static int bit(int item, int i){
+		int h = item * 0x9E3779B9 + i * 0x85EBCA6B;
+		h ^= h >>> 16;
+		h *= 0x7FEB352D;
+		h ^= h >>> 15;
+		return h & 31;
+	}
+
+}
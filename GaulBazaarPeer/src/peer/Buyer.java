@@ -6,11 +6,10 @@ package peer;
 // Import statements
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.net.InetSocketAddress;
-import java.net.Socket;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
 
 /*
  * The Buyer class represents a buyer peer in the Bazaar scenario. It functions as both a 
@@ -20,70 +19,119 @@ import java.util.Map;
 public class Buyer {
 
 	// Global variables
-	protected int N; //Maximum number of peers
-	protected String peerID; //This buyer's peerID
-	protected ArrayList<String> neighbors; //This peer's neighbors
-	protected PeerIDParser idParser; //A peerID parser
+	protected int N; //Default hopcount of lookups
+	protected PeerId peerID; //This buyer's PeerId
+	protected Frame identity; //A frame with this buyer as its source
+	protected Topology topology; //This peer's neighbors
+	protected PeerTable peers; //Interned PeerIds of known peers
 	protected ItemRequest itemRequest; //An ItemRequest monitor
 	protected String outputFile; //An output file path
+	protected PeerConfig config; //Run parameters of this peer
+	protected Transport connections; //Carries frames to other peers
+	protected FanOut fanOut; //Sends frames to several neighbors at once
+	protected RandomWalk walks; //Launches random walkers of lookups
+	protected QueryRouter router; //Routes lookups and caches seller locations
 	
 	// Constructor method that initializes global variables using provided parameters
-	// and runs the init method.
-	public Buyer(String peerID, 
-			ArrayList<String> neighbors, 
-			PeerIDParser idParser, 
+	// and runs the init method. Frames are carried over TCP connections.
+	public Buyer(PeerId peerID, 
+			ArrayList<PeerId> neighbors, 
+			PeerTable peers, 
 			int N, 
-			String outputFile) {
+			String outputFile,
+			PeerConfig config) {
+		this(peerID, neighbors, peers, N, outputFile, config, new ConnectionManager(config.connectTimeout));
+	}
+	
+	// Constructor method that initializes global variables using provided parameters, including
+	// the Transport that carries frames to other peers, and runs the init method. Frames cross
+	// emulated links if the PeerConfig has a LinkModel.
+	public Buyer(PeerId peerID, 
+			ArrayList<PeerId> neighbors, 
+			PeerTable peers, 
+			int N, 
+			String outputFile,
+			PeerConfig config,
+			Transport connections) {
 		this.peerID = peerID;
-		this.neighbors = neighbors;
-		this.idParser = idParser;
+		this.peers = peers;
 		this.N = N;
+		this.identity = peerID.getIdentity();
 		this.outputFile = outputFile;
-		this.itemRequest = new ItemRequest(idParser.getPeerIndex(peerID), outputFile);
+		this.config = config;
+		this.connections = config.linkModel != null ? new LinkEmulator(peerID, connections, config) : connections;
+		this.topology = new Topology(peerID.getIndex(), neighbors, config.directionalForwarding);
+		this.fanOut = new FanOut(this.connections, topology, config);
+		this.walks = new RandomWalk(identity, topology, peers, fanOut, this.connections, config);
+		this.router = new QueryRouter(identity, topology, peers, fanOut, this.connections, config);
+		this.itemRequest = new ItemRequest(peerID.getIndex(), N, outputFile, config);
 		init();
 	}
 	
 	// The init method creates a Listener thread to handle seller replies and forwarding
 	// other buyer's lookup requests. This method also creates a Requester thread that 
-	// performs lookup requests for this buyer.
+	// performs lookup requests for this buyer. A buyer driven by events serves its frames and
+	// runs its requests on the scheduler instead of starting threads.
 	public void init(){
-		Listener listener = new Listener(peerID, neighbors, idParser, itemRequest);
-		listener.start();
-		Requester requester = new Requester(peerID, neighbors, idParser, itemRequest, N, outputFile);
-		requester.start();
+		Listener listener = new Listener(peerID, identity, topology, peers, itemRequest, config, fanOut, connections, router);
+		Requester requester = new Requester(peerID, identity, topology, peers, itemRequest, N, outputFile, config, fanOut, walks, router);
+		if(config.eventDriven && config.scheduler != null){
+			listener.run();
+			requester.drive(config.scheduler);
+		}
+		else{
+			listener.start();
+			requester.start();
+		}
 	}
 	
 	/*
-	 * The Listener class acts as a wrapper class to run a BuyerServer as its own thread.
+	 * The Listener class acts as a wrapper class to serve a BuyerServer over the buyer's Transport
+	 * as its own thread.
 	 */
 	private static class Listener extends Thread{
 		
 		// Global variables that point to the same global variables as the Buyer object.
-		private String peerID;
-		private ArrayList<String> neighbors;
-		private PeerIDParser idParser;
+		private PeerId peerID;
+		private Frame identity;
+		private Topology topology;
+		private PeerTable peers;
 		ItemRequest itemRequest;
+		private PeerConfig config;
+		private FanOut fanOut;
+		private Transport connections;
+		private QueryRouter router;
 		
 		
 		// Constructor method that is provided global variables from the Buyer object to
 		// initiate the Listener's global variables.
-		public Listener(String peerID, 
-				ArrayList<String> neighbors, 
-				PeerIDParser idParser, 
-				ItemRequest itemRequest){
+		public Listener(PeerId peerID, 
+				Frame identity,
+				Topology topology, 
+				PeerTable peers, 
+				ItemRequest itemRequest,
+				PeerConfig config,
+				FanOut fanOut,
+				Transport connections,
+				QueryRouter router){
 			this.peerID = peerID;
-			this.neighbors = neighbors;
-			this.idParser = idParser;
+			this.identity = identity;
+			this.topology = topology;
+			this.peers = peers;
 			this.itemRequest = itemRequest;
+			this.config = config;
+			this.fanOut = fanOut;
+			this.connections = connections;
+			this.router = router;
 		}
 		
 		// Run method that defines the execution of this thread.
 		public void run(){
 			
-			// Initialize and enable a BuyerServer to process incoming messages to this buyer.
-			BuyerServer buyerServer = new BuyerServer(idParser.getPeerPort(peerID), peerID, neighbors, idParser, itemRequest);
+			// Initialize a BuyerServer and serve incoming messages to this buyer with it.
+			BuyerServer buyerServer = new BuyerServer(peerID, identity, topology, peers, itemRequest, config, fanOut, connections, router);
 			try {
-				buyerServer.enable();
+				connections.serve(peerID, buyerServer, config);
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
@@ -93,166 +141,332 @@ public class Buyer {
 
 	/*
 	 * The Requester class acts as the client for this buyer and performs lookups to find
-	 * sellers of the item this buyer is looking for.
+	 * sellers of the item this buyer is looking for. In the EXPANDING_RING SearchMode it also
+	 * sends out the next ring of requests that didn't receive enough offers, and in the
+	 * RANDOM_WALK SearchMode it launches walkers instead of flooding lookups. Requests for an
+	 * item with a sticky seller are first sent to that seller alone. The Requester either runs
+	 * as its own thread, waiting for its requests to be decided, or is driven by events on a
+	 * scheduler that collect its requests as they are decided.
 	 */
 	private static class Requester extends Thread{
 		
 		// Global variables that point to the same global variables as the Buyer object
 		// with a few additions including lookup sequence numbers and a total purchase count.
 		private int N;
-		private String peerID;
-		private ArrayList<String> neighbors;
-		private PeerIDParser idParser;
+		private PeerId peerID;
+		private Frame identity;
+		private Topology topology;
+		private PeerTable peers;
 		private ItemRequest itemRequest;
 		private int seqNum;
 		private int purchaseCount;
+		private int purchases;
+		private boolean finished;
 		private String outputFile;
+		private boolean writeOutput;
+		private SearchMode searchMode;
+		private int walkers;
+		private FanOut fanOut;
+		private RandomWalk walks;
+		private QueryRouter router;
 		
 		// Constructor method that is provided global variables from the Buyer object to
 		// initiate the Listener's global variables. The sequence number and purchase count
 		// are initialized to 0.
-		public Requester(String peerID, 
-				ArrayList<String> neighbors, 
-				PeerIDParser idParser,
+		public Requester(PeerId peerID, 
+				Frame identity,
+				Topology topology, 
+				PeerTable peers,
 				ItemRequest itemRequest,
 				int N,
-				String outputFile){
+				String outputFile,
+				PeerConfig config,
+				FanOut fanOut,
+				RandomWalk walks,
+				QueryRouter router){
 			this.N = N;
 			this.peerID = peerID;
-			this.neighbors = neighbors;
-			this.idParser = idParser;
+			this.identity = identity;
+			this.topology = topology;
+			this.peers = peers;
 			this.itemRequest = itemRequest;
 			this.seqNum = 0;
 			this.purchaseCount = 0;
+			this.purchases = config.purchases;
+			this.finished = false;
 			this.outputFile = outputFile;
+			this.writeOutput = config.writeOutput;
+			this.searchMode = config.searchMode;
+			this.walkers = Math.max(1, config.walkers);
+			this.fanOut = fanOut;
+			this.walks = walks;
+			this.router = router;
 		}
 		
 		// Run method that defines the execution of this thread.
 		public void run(){
+			begin();
 			
-			// The Requester thread initially broadcasts adjacency messages to this buyer's neighbors. 
-			// This allows its neighbors with lower peer indices to detect it and also consider this 
-			// buyer a neighbor. These adjacency messages are preceded by the header string "adj".
-			
-			// Store any non-existent neighbors
-			ArrayList<String> badNeighbors = new ArrayList<>();
-			
-			// Iterate through all neighbors
-			for(int i = 0; i < this.neighbors.size(); i++){
-				String neighborID = this.neighbors.get(i);
+			// Perform lookups until enough successful purchases have occurred, keeping as many
+			// requests in flight as the pipelining depth allows. Requests still in flight once
+			// enough purchases were made are collected before finishing.
+			while(this.purchaseCount < this.purchases || this.itemRequest.getOutstanding() > 0){
+				issue();
 				
-				try{
-					
-					// Create a socket connection a neighbor
-					InetSocketAddress neighborAddr = idParser.getPeerSocket(neighborID); 
-					Socket socket = new Socket();
-					socket.connect(neighborAddr);
-					
-					// Create an outgoing message channel with the neighbor
-					PrintWriter msgToNeighbor = new PrintWriter(socket.getOutputStream(), true);
-					
-					// Send neighbor an adjacency message with its peerID
-					msgToNeighbor.println("adj");
-					msgToNeighbor.println(peerID);
-					
-					// Close the socket connection
-					socket.close();
+				// Wait until one of the requests is decided by the CompletionPolicy or has to be
+				// looked up after its sticky seller refused or sent out in a wider ring
+				try {
+					collect(this.itemRequest.awaitCollectable());
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+			}
+			finish();
+		}
+		
+		// The drive method runs the Requester from events on the provided scheduler instead of
+		// its own thread. The ItemRequest runs the Requester's collector whenever a request
+		// becomes collectable, which collects every such request, issues new requests and
+		// finishes once enough purchases were made and nothing is in flight.
+		public void drive(ScheduledExecutorService scheduler){
+			this.itemRequest.setCollector(new Runnable(){
+				public void run(){
+					collectAll();
 				}
-				catch(IOException e){ 
-					System.out.println(e.getMessage()); 
-					badNeighbors.add(neighborID); // Identify non-existent neighbors
+			});
+			scheduler.execute(new Runnable(){
+				public void run(){
+					begin();
+					issue();
 				}
-				
+			});
+		}
+		
+		// The collectAll method collects every collectable request and issues the next requests,
+		// or finishes once enough purchases were made.
+		private void collectAll(){
+			if(this.finished){
+				return;
+			}
+			ItemRequest.PendingRequest request = this.itemRequest.pollCollectable();
+			while(request != null){
+				collect(request);
+				request = this.itemRequest.pollCollectable();
+			}
+			if(this.purchaseCount < this.purchases || this.itemRequest.getOutstanding() > 0){
+				issue();
 			}
-			// Remove non-existing neighbors
-			for(String badNeighbor : badNeighbors){
-				this.neighbors.remove(badNeighbor);
+			else{
+				finish();
 			}
+		}
+		
+		// The begin method starts the Requester. It broadcasts adjacency messages to this buyer's
+		// neighbors, which allows its neighbors with lower peer indices to detect it and also
+		// consider this buyer a neighbor, and sends them the buyer's summaries.
+		private void begin(){
 			
-			// Perform lookups until 1000 successful purchases have occurred.
-			while(this.purchaseCount < 1000){
-				
-				// Determine item for the next lookup
-				String item = this.itemRequest.newRequest();
-				
-				// Perform lookup
-				lookup(item, N);
+			// Send every neighbor an adjacency frame identifying this buyer at once, neighbors
+			// that cannot be reached are removed by the fan-out.
+			this.fanOut.sendToAll(identity.derive(Frame.ADJ, 0, 0, 0));
+			this.router.refreshSummaries();
+		}
+		
+		// The issue method issues lookups while the pipelining depth allows another request and
+		// more purchases are to be made.
+		private void issue(){
+			while(this.purchaseCount < this.purchases && this.itemRequest.hasFreeSlot()){
 				
-				// Wait for responses
-				try {
-					Thread.sleep(1000);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
+				// Open a request for the next lookup's sequence number and ask the sticky seller
+				// or perform the lookup
+				ItemRequest.PendingRequest request = this.itemRequest.newRequest(this.seqNum);
+				if(request.getSticky() != null){
+					direct(request.getItem(), request.getSticky());
+				}
+				else{
+					this.itemRequest.addLookups(request, lookup(request.getItem(), request.getTtl()));
 				}
-				
-				// Obtain and print responses to the output file
-				Map<String, Boolean> responses = this.itemRequest.chooseWinner();
-				printWinner(responses, item);
-				
 			}
-			
-			// After all requests have been fulfilled, print average response times and
-			// output to the console a message indicating the buyer is finished buying
-			// items.
-			this.itemRequest.printAverageResponseTime();
+		}
+		
+		// The collect method handles a request that was decided or needs another lookup. The
+		// request's next lookup is sent unless a late offer decided it, and a decided request's
+		// decision is sent to the sellers and its responses are printed to the output file.
+		private void collect(ItemRequest.PendingRequest request){
+			if(request.needsLookup()){
+				if(this.itemRequest.nextLookup(request, this.seqNum)){
+					this.itemRequest.addLookups(request, lookup(request.getItem(), request.getTtl()));
+				}
+			}
+			else{
+				sendDecisions(request);
+				for(boolean chosen : request.getResponses().values()){
+					if(chosen){
+						this.purchaseCount++;
+					}
+				}
+				if(this.writeOutput){
+					printWinner(request.getResponses(), request.getItem());
+					if(request.isDirect()){
+						printDirect(request);
+					}
+					else if(this.searchMode == SearchMode.EXPANDING_RING){
+						printRings(request);
+					}
+					else if(this.searchMode == SearchMode.RANDOM_WALK){
+						printWalk(request);
+					}
+				}
+			}
+		}
+		
+		// The finish method prints the response times once all requests have been
+		// fulfilled and outputs to the console the location cache, summary, directory and ring
+		// counters and a message indicating the buyer is finished buying items.
+		private void finish(){
+			this.finished = true;
+			if(this.writeOutput){
+				this.itemRequest.printResponseTimes();
+			}
+			System.out.println(this.router.getCache());
+			System.out.println(this.router.getSummaries());
+			if(this.router.getDirectory() != null){
+				System.out.println(this.router.getDirectory());
+			}
+			if(this.router.getRing() != null){
+				System.out.println(this.router.getRing());
+			}
 			System.out.println("Done");
-	
 		}
 		
 		// The lookup method takes a product name and a hopcount and broadcasts the buyers
 		// request to all of its neighbors. The product_name is the item being requested and
-		// the hopcount is equal to the maximum number of peers in the network.
-		private void lookup(String product_name, int hopcount){
-			
-			// Store any non-existent neighbors
-			ArrayList<String> badNeighbors = new ArrayList<>();
+		// the hopcount is the default hopcount, the hopcount of an expanding ring or the hops
+		// of a walker. In the RANDOM_WALK SearchMode the request is sent as walkers instead.
+		// Returns the number of lookup frames sent, which is the number of walkers launched for a
+		// walk.
+		private int lookup(String product_name, int hopcount){
 			
-			// Iterate through neighbors
-			for(int i = 0; i < neighbors.size(); i++){
-				String neighborID = neighbors.get(i);
-				try{
-					// Create a socket connection to a neighbor
-					InetSocketAddress neighborAddr = idParser.getPeerSocket(neighborID);
-					Socket socket = new Socket();
-					socket.connect(neighborAddr);
-					
-					// Create an outgoing message channel with the neighbor
-					PrintWriter msgToNeighbor = new PrintWriter(socket.getOutputStream(), true);
-					
-					// Send the neighbor a header message containing a lookup indicator "L" along
-					// with a hopcount, product_name and sequence number. Then send the neighbor
-					// the buyer's peerID.
-					msgToNeighbor.println("L" + hopcount + ":" + product_name + "|" + seqNum);
-					msgToNeighbor.println(peerID);
-					
-					// Close the socket connection
-					socket.close();
-				}			
-				catch(IOException e){ 
-					System.out.println(e.getMessage()); 
-					badNeighbors.add(neighborID); //Identify non-existent neighbors
-				}
+			// Send the request as walkers with this buyer as their source, each to a random neighbor
+			int item = ItemCatalog.getItemId(product_name);
+			int sent = this.walkers;
+			if(this.searchMode == SearchMode.RANDOM_WALK){
+				this.walks.launch(identity.derive(Frame.WALK, hopcount, item, seqNum), this.walkers);
 			}
-			// Remove non-existing neighbors
-			for(String badNeighbor : badNeighbors){
-				this.neighbors.remove(badNeighbor);
+			else{
+				
+				// Build the lookup frame once for all neighbors, it contains the hopcount, the item
+				// id of the product_name and the sequence number, with this buyer as its source.
+				Frame lookup = identity.derive(Frame.LOOKUP, hopcount, item, seqNum);
+				
+				// Send the lookup to the sellers listed by the directory or the ring, to the cached
+				// sellers of the item or to all neighbors at once, peers that cannot be reached are
+				// removed by the fan-out.
+				sent = this.router.originate(lookup);
+			}
+			
+			// Increase sequence number for the next lookup
+			this.seqNum++;
+			return sent;
+		}
+		
+		// The direct method sends a request for a product to the sticky seller the product was last
+		// bought from, who answers with an offer or a refusal. A seller that cannot be reached is
+		// treated as a refusal so the request is looked up right away.
+		private void direct(String product_name, PeerId sellerID){
+			Frame direct = identity.derive(Frame.DIRECT, 1, ItemCatalog.getItemId(product_name), seqNum);
+			if(!this.fanOut.send(new PeerId[]{ sellerID }, direct).isEmpty()){
+				this.itemRequest.refuse(seqNum);
 			}
 			
 			// Increase sequence number for the next lookup
-			this.seqNum++;	
+			this.seqNum++;
+		}
+		
+		// The sendDecisions method settles a decided request with the sellers that made an offer
+		// for it. The chosen seller is sent a commit frame and every other seller a decline frame,
+		// each carrying the sequence number of the lookup the seller replied to, so the sellers
+		// settle their reservations.
+		private void sendDecisions(ItemRequest.PendingRequest request){
+			
+			// Sort the sellers by the buyer's decision and by the ring they replied to
+			Map<Integer, ArrayList<PeerId>> chosen = new HashMap<>();
+			Map<Integer, ArrayList<PeerId>> declined = new HashMap<>();
+			for(Map.Entry<PeerId, Boolean> response : request.getResponses().entrySet()){
+				Map<Integer, ArrayList<PeerId>> decision = response.getValue() ? chosen : declined;
+				int ringSeqNum = request.getOfferSeqNum(response.getKey());
+				if(!decision.containsKey(ringSeqNum)){
+					decision.put(ringSeqNum, new ArrayList<PeerId>());
+				}
+				decision.get(ringSeqNum).add(response.getKey());
+			}
+			
+			// Send the commit and decline frames
+			int item = ItemCatalog.getItemId(request.getItem());
+			for(Map.Entry<Integer, ArrayList<PeerId>> ring : chosen.entrySet()){
+				this.fanOut.send(ring.getValue(), identity.derive(Frame.COMMIT, 0, item, ring.getKey()));
+			}
+			for(Map.Entry<Integer, ArrayList<PeerId>> ring : declined.entrySet()){
+				this.fanOut.send(ring.getValue(), identity.derive(Frame.DECLINE, 0, item, ring.getKey()));
+			}
+		}
+		
+		// The printDirect method prints to the output file that a request was bought from its
+		// sticky seller without a lookup.
+		private void printDirect(ItemRequest.PendingRequest request){
+			try{
+				FileWriter writer = new FileWriter(outputFile + "buyerOutput.txt", true);
+				writer.write("Peer ("+ this.peerID.getIndex() +") " + request.getItem() + " request: Bought directly from sticky seller Peer (" +
+						request.getSticky().getIndex() + ")");
+				writer.write(System.getProperty("line.separator"));
+				writer.close();
+			}
+			catch(IOException e){ System.out.println(e.getMessage()); }
+		}
+		
+		// The printRings method prints how far an expanding ring request traveled to the output
+		// file, together with the lookup frames this buyer sent for all of its rings. The frames
+		// the lookups were forwarded in by other peers aren't known to the buyer.
+		private void printRings(ItemRequest.PendingRequest request){
+			try{
+				FileWriter writer = new FileWriter(outputFile + "buyerOutput.txt", true);
+				writer.write("Peer ("+ this.peerID.getIndex() +") " + request.getItem() + " request: " + request.getRings() +
+						" ring(s), hopcount " + request.getTtl() + " of " + N + ", " + request.getLookups() +
+						" lookup frames sent");
+				writer.write(System.getProperty("line.separator"));
+				writer.close();
+			}
+			catch(IOException e){ System.out.println(e.getMessage()); }
+		}
+		
+		// The printWalk method prints the counters of a random walk request to the output file: the
+		// hops its walkers took until it was decided, the messages that cost including checks
+		// and offers, and the time until the first offer arrived.
+		private void printWalk(ItemRequest.PendingRequest request){
+			int messages = request.getWalkHops() + request.getWalkChecks() + request.getResponses().size();
+			long latency = request.getFirstResponseTime();
+			try{
+				FileWriter writer = new FileWriter(outputFile + "buyerOutput.txt", true);
+				writer.write("Peer ("+ this.peerID.getIndex() +") " + request.getItem() + " request: " + this.walkers +
+						" walker(s), " + request.getWalkHops() + " hops, " + messages + " messages, " +
+						(latency < 0 ? "no offer" : latency + "ms to first offer"));
+				writer.write(System.getProperty("line.separator"));
+				writer.close();
+			}
+			catch(IOException e){ System.out.println(e.getMessage()); }
 		}
 		
 		// The printWinner method prints out all the responses to a given lookup. It takes a 
 		// map as a parameter that maps seller peerIDs with a boolean indicating if they were
 		// chosen for the purchase of the item. It then prints out the results in this map
 		// to an output file.
-		private void printWinner(Map<String, Boolean> responses, String item){
+		private void printWinner(Map<PeerId, Boolean> responses, String item){
 			try{
 				// Initialize a FileWriter object for writing to the output file.
 				FileWriter writer = new FileWriter(outputFile + "buyerOutput.txt", true);
 				
 				// Create a request string to precede response results
-				String request = "Peer ("+ this.idParser.getPeerIndex(peerID) +") ";
+				String request = "Peer ("+ this.peerID.getIndex() +") ";
 				request += item + " request: ";
 				
 				// If no sellers replied to the lookup indicate no responses were given
@@ -263,16 +477,15 @@ public class Buyer {
 				}
 				else{
 					// Iterate through peerIDs of sellers that responded
-					for(String sellerID : responses.keySet()){
+					for(PeerId sellerID : responses.keySet()){
 						
 						// Create a string indicating the peer that responded
-						int sellerIndex = this.idParser.getPeerIndex(sellerID);
+						int sellerIndex = sellerID.getIndex();
 						String response = request + "Peer (" + sellerIndex + ") responds with " + item + " available";
 						
 						// Indicate if the seller was chosen for the purchase
 						if(responses.get(sellerID)){
 							response += " (chosen for purchase)";
-							this.purchaseCount++;
 						}
 						
 						// Write out the response string to the output file
@@ -4,208 +4,190 @@
 package peer;
 
 // Import statements
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.net.InetSocketAddress;
-import java.net.Socket;
-import java.util.ArrayList;
 
 /*
- * The BuyerServer class extends BaseServer and implements and executes BuyerRequestHander threads 
- * to handle incoming adjacency, lookup and reply messages.
+ * The BuyerServer class implements FrameHandler and creates BuyerRequestHander threads to handle
+ * incoming adjacency, lookup and offer messages delivered by the buyer's Transport.
  */
-public class BuyerServer extends BaseServer {
+public class BuyerServer implements FrameHandler {
 	
 	// Global Variables that point to the same global variables that are used in the Buyer object 
-    // that created this BuyerServer. Also contains a SequenceMap to implement flooding control.
-	protected String peerID;
-	protected PeerIDParser idParser;
-	protected ArrayList<String> neighbors;
+    // that created this BuyerServer, including the frame that identifies this buyer. Also contains 
+    // a DuplicateFilter to implement flooding control.
+	protected PeerId peerID;
+	protected Frame identity;
+	protected PeerTable peers;
+	protected Topology topology;
 	protected ItemRequest itemRequest;
-	protected SequenceMap seqMap;
+	protected DuplicateFilter duplicates;
+	protected FanOut fanOut;
+	protected Transport connections;
+	protected RandomWalk walks;
+	protected QueryRouter router;
 	
     // Constructor method that initializes global variable from provided parameters as well as
-    // creates a new SequenceMap monitor for flooding control.
-	public BuyerServer(int portNum, 
-			String peerID, 
-			ArrayList<String> neighbors, 
-			PeerIDParser idParser, 
-			ItemRequest itemRequest) {
-		super(portNum);
+    // creates a new DuplicateFilter for flooding control and a RandomWalk that moves walkers on.
+	public BuyerServer(PeerId peerID, 
+			Frame identity,
+			Topology topology, 
+			PeerTable peers, 
+			ItemRequest itemRequest,
+			PeerConfig config,
+			FanOut fanOut,
+			Transport connections,
+			QueryRouter router) {
 		this.peerID = peerID;
-		this.idParser = new PeerIDParser();
-		this.neighbors = neighbors;
+		this.identity = identity;
+		this.peers = peers;
+		this.topology = topology;
 		this.itemRequest = itemRequest;
-		this.seqMap = new SequenceMap();
+		this.duplicates = new DuplicateFilter(config.peerCount);
+		this.fanOut = fanOut;
+		this.connections = connections;
+		this.walks = new RandomWalk(identity, topology, peers, fanOut, connections, config);
+		this.router = router;
 	}
 
     
-    // This implementation of the getServerThread returns a BuyerRequestHandler thread that 
-    // handles an incoming lookup, reply, or adjacency message to this buyer. The client socket is
-    // used to create this handler thread.
+    // This implementation of the getRequestHandler returns a BuyerRequestHandler that handles 
+    // an incoming lookup, walk, check, offer, or adjacency frame to this buyer. The frame and the client
+    // connection are used to create this handler.
 	@Override
-	public Thread getServerThread(Socket client) {
-		return new BuyerRequestHandler(client, peerID, neighbors, idParser, itemRequest, seqMap);
+	public Runnable getRequestHandler(Frame frame, ClientConnection client) {
+		return new BuyerRequestHandler(frame, client, identity, topology, peers, itemRequest, duplicates, connections, walks, router);
 	}
 	
 	/*
      * The BuyerRequestHandler class uses the global objects provided by the Buyer object to this
-     * BuyerServer to properly respond to incoming lookup and reply messages. Lookup messages are
+     * BuyerServer to properly respond to incoming lookup and offer messages. Lookup messages are
      * automatically forwarded if they haven't been seen before and have remaining hops left and 
-     * reply messages invoke the buy method, which nominates the seller to potentially be chosen 
-     * for the purchase.
+     * offer messages invoke the offer method, which nominates the seller to potentially be chosen 
+     * for the purchase. Walkers of any buyer are moved on, and walkers of this buyer that check
+     * back are sent on while their request is open.
      */
-	private static class BuyerRequestHandler extends Thread{
+	private static class BuyerRequestHandler implements Runnable{
 		
         // Global variables that include several global variables from the original BuyerServer 
-        // object as well as the client socket for communication with the client.
-		private Socket client;
-		private String peerID;
-		private PeerIDParser idParser;
-		private ArrayList<String> neighbors;
+        // object as well as the frame and the client connection for communication with the client.
+		private Frame frame;
+		private ClientConnection client;
+		private Frame identity;
+		private PeerTable peers;
+		private Topology topology;
 		private ItemRequest itemRequest;
-		private SequenceMap seqMap;
+		private DuplicateFilter duplicates;
+		private Transport connections;
+		private RandomWalk walks;
+		private QueryRouter router;
 		
         // Constructor method that assigns the provided parameters to their corresponding global
         // variables.
-		public BuyerRequestHandler(Socket client,
-				String peerID, 
-				ArrayList<String> neighbors, 
-				PeerIDParser idParser, 
+		public BuyerRequestHandler(Frame frame,
+				ClientConnection client,
+				Frame identity, 
+				Topology topology, 
+				PeerTable peers, 
 				ItemRequest itemRequest,
-				SequenceMap seqMap) {
+				DuplicateFilter duplicates,
+				Transport connections,
+				RandomWalk walks,
+				QueryRouter router) {
+			this.frame = frame;
 			this.client = client;
-			this.peerID = peerID;
-			this.idParser = idParser;
-			this.neighbors = neighbors;
+			this.identity = identity;
+			this.peers = peers;
+			this.topology = topology;
 			this.itemRequest = itemRequest;
-			this.seqMap = seqMap;
+			this.duplicates = duplicates;
+			this.connections = connections;
+			this.walks = walks;
+			this.router = router;
 		}
 		
-        // Run method that defines the execution of this thread.
+        // Run method that defines the handling of the frame.
 		public void run(){
 			
-            // Check to make sure the client socket is valid.
+            // Check to make sure the client connection is valid.
 			if(client != null){
 				
 				try{
-                    // Initiate a BufferedReader to read the incoming messages from the client.
-					BufferedReader msgFromClient = new BufferedReader(
-			                new InputStreamReader(client.getInputStream()));
-					
-                    // Read in the message header and the sourceID  of the message from the client
-					String header = msgFromClient.readLine();
-					String sourceID = msgFromClient.readLine();
-					
-                    // Check if this message is an adjacency message, if so add the neighbor to 
-                    // this Buyer's neigbor list.
-					if(header.equals("adj")){
-						neighbors.add(sourceID);
+	                // Check if this frame is an adjacency message, if so add the neighbor to 
+	                // this Buyer's topology.
+					if(frame.getType() == Frame.ADJ){
+						topology.add(peers.intern(frame));
+						router.refreshSummaries();
 					}
-                    
-                    // Check if this message is a lookup message and handle it appropriately.
-					else if(header.charAt(0) == 'L'){
-                        
-                        // Extract the remaining hopcount and sequence number from the header.
-						int headerBreak1 = header.indexOf(':');
-						int headerBreak2 = header.indexOf('|');
-						int hopcount = Integer.parseInt(header.substring(1, headerBreak1));
-						int seqNum = Integer.parseInt(header.substring(headerBreak2 + 1, header.length()));
-                        
-                        // Decrement the hopcount.
-						hopcount--;
-                        
-                        // If this lookup message hasn't already been forwarded and still has hops left
-                        // then construct a new header for the lookup and forward to all neighbors.
-						if(seqMap.updateSeqNum(idParser.getPeerIndex(sourceID), seqNum) && hopcount > 0){
-							String nextHeader = "L" + hopcount + header.substring(headerBreak1, header.length());
-							forward(nextHeader, sourceID);
+	                
+	                // Check if this frame is a lookup message and handle it appropriately.
+					else if(frame.getType() == Frame.LOOKUP){
+	                    
+	                    // Decrement the hopcount.
+						int hopcount = frame.getHopcount() - 1;
+	                    
+	                    // If this lookup message hasn't already been forwarded and still has hops left
+	                    // then forward the lookup with the decremented hopcount to all neighbors.
+						if(duplicates.firstSeen(frame.getSourceIndex(), frame.getSeqNum()) && hopcount > 0){
+							router.route(frame, hopcount);
 						}
 					}
-                    
-                    // Check if the message is a reply from a seller, if so, extract the item from the
-                    // header and invoke the buy method.
-					else if(header.charAt(0) == 'R'){
-						int headerBreak = header.indexOf(':');
-						String item = header.substring(headerBreak+1, header.length());
-						buy(client, sourceID, item);
+	                
+					// Check if this frame is a walker, if so move it on since a buyer doesn't sell.
+					else if(frame.getType() == Frame.WALK){
+						walks.step(frame);
 					}
 					
-				}
-				catch(IOException e){ 
-					e.printStackTrace();
-				}
-			}
-
-		}
-		
-        // The forward method takes a lookup message's header and sourceID and forwards it
-        // to every neighbor of this buyer.
-		private void forward(String header, String sourceID){
-			
-            // Store any non-existent neighbors
-			ArrayList<String> badNeighbors = new ArrayList<>();
-			
-            // Determine if the peer that sent the lookup has a larger peer index
-			boolean bigSource = idParser.getPeerIndex(sourceID) > idParser.getPeerIndex(peerID);
-			
-            // Iterate through all neighbors
-			for(int i = 0; i < neighbors.size(); i++){
-				String neighborID = neighbors.get(i);
-				
-                // Determine if the neighbor has a larger peer index
-				boolean bigNeighbor = idParser.getPeerIndex(neighborID) > idParser.getPeerIndex(peerID);
-				
-                // Forward the lookup message if the neighbor is in the opposite direction in the network
-                // than the source of the message.
-				if(bigSource ^ bigNeighbor){
-					try{
-                        // Create a socket connection to a neighbor
-						InetSocketAddress neighborAddr = idParser.getPeerSocket(neighborID);
-						Socket socket = new Socket();
-						socket.connect(neighborAddr);
-                        
-                        // Create an outgoing message channel with the neighbor and send the lookup message
-						PrintWriter msgToNeighbor = new PrintWriter(socket.getOutputStream(), true);
-						msgToNeighbor.println(header);
-						msgToNeighbor.println(sourceID);
-                        
-                        // Close the socket
-						socket.close();
-					}			
-					catch(IOException e){ 
-						System.out.println(e.getMessage()); 
-						badNeighbors.add(neighborID); //Identify non-existent neighbors
+					// Check if this frame is one of this buyer's walkers checking back, if so send it
+					// on from the peer it reached while its request is open.
+					else if(frame.getType() == Frame.CHECK){
+						if(itemRequest.check(frame.getSeqNum(), frame.getHopcount())){
+							connections.send(peers.intern(frame), identity.derive(Frame.WALK, frame.getHopcount(), frame.getItem(), frame.getSeqNum()));
+						}
+					}
+	                
+					// Check if this frame is a sticky seller refusing a direct request, if so look the
+					// request up normally.
+					else if(frame.getType() == Frame.REFUSE){
+						itemRequest.refuse(frame.getSeqNum());
+					}
+					
+					// Check if this frame is a seller's location passing back along a lookup's path, if
+					// so cache it and pass it on.
+					else if(frame.getType() == Frame.ADVERT){
+						router.relay(frame);
+					}
+					
+					// Check if this frame is a level of a neighbor's item summary, if so store it.
+					else if(frame.getType() == Frame.SUMMARY){
+						router.summarize(frame);
+					}
+					
+					// Check if this frame belongs to the Chord ring, if so hand it to the ring node.
+					else if(ChordNode.handles(frame.getType())){
+						router.receiveRing(frame);
+					}
+	                
+	                // Check if the frame is an offer from a seller, if so, invoke the offer method.
+					else if(frame.getType() == Frame.OFFER){
+						offer(peers.intern(frame), ItemCatalog.getItemName(frame.getItem()));
 					}
 				}
-				
-			}
-            // Remove non-existing neighbors
-			for(String badNeighbor : badNeighbors){
-				this.neighbors.remove(badNeighbor);
+				catch(IOException e){ System.out.println(e.getMessage()); }
 			}
+
 		}
 		
-        // The buy method nominates a seller that has replied to this buyer's lookup
-        // request to potentially be chosen for the purchase.
-		private void buy(Socket seller, String sourceID, String item){
-			try{
-                // Initialize a PrintWriter object to send messages to the seller.
-				PrintWriter msgToSeller = new PrintWriter(seller.getOutputStream(), true);
-                
-                // Check to see if this seller is chosen for the purchase and send either
-                // a buy true "BT" or buy false "BF" message.
-				if(this.itemRequest.buy(item, sourceID)){
-					msgToSeller.println("BT");
-				}
-				else{
-					msgToSeller.println("BF");
+        // The offer method nominates a seller that has offered its product for this buyer's lookup
+        // request to potentially be chosen for the purchase. The decision is sent to the seller
+        // once the request is decided, an offer for a request that is no longer open is declined
+        // right away.
+		private void offer(PeerId sourceID, String item){
+			if(!this.itemRequest.offer(frame.getSeqNum(), item, sourceID, frame.getHopcount())){
+				try{
+					connections.send(sourceID, identity.derive(Frame.DECLINE, 0, frame.getItem(), frame.getSeqNum()));
 				}
+				catch(IOException e){ System.out.println(e.getMessage()); }
 			}
-			catch(IOException e){ System.out.println(e.getMessage()); }
-			
 		}
 		
 	}
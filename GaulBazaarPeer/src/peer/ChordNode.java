@@ -0,0 +1,570 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+// Import statements
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * The ChordNode class makes a peer a node of a Chord ring in the DHT SearchMode. The ring's ids
+ * are the peer indices handed out by the registry and item names are hashed to keys in the same
+ * space. The node responsible for a key is the first node at or after the key on the ring. A
+ * FIND for a key is passed from node to node through the finger tables, whose i-th finger is the
+ * node responsible for the key 2^i after the node, so it reaches the node before the key in
+ * O(log N) hops, which answers with a FOUND naming its successor. Sellers store provider records
+ * for their item at the responsible node with a PUT, repeated periodically since records expire,
+ * and buyers FETCH the providers of an item from it.
+ * The ring is maintained as in Chord: every stabilize interval a node asks its successor for the
+ * successor's predecessor and notifies its successor of itself, refreshes one finger, and forgets
+ * a predecessor that stopped stabilizing with it. Node 0 starts the ring and every other node
+ * joins it through one of its neighbors. A node that cannot be reached is dropped from the
+ * finger table and replaced as the successor by the closest finger. Lookup hops are counted in a
+ * histogram so that the ring can be compared with flooding.
+ */
+public class ChordNode {
+
+	// Purposes of the FINDs this node makes, finger indices are purposes as well
+	private static final int JOIN = -1; // Find this node's successor
+	private static final int RESOLVE = -2; // Find the providers of an item
+	private static final int PROVIDE = -3; // Store a provider record of this node
+	private static final int WITHDRAW = -4; // Remove a provider record of this node
+
+	// Largest number of FINDs awaiting an answer that are remembered
+	private static final int MAX_PENDING = 1024;
+
+	// Global variables
+	private Frame identity; // A frame with this peer as its source
+	private PeerId self; // This peer
+	private Topology topology; // This peer's neighbors, one of which the ring is joined through
+	private PeerTable peers; // Interned PeerIds of known peers
+	private Transport connections; // Carries frames to other peers
+	private int ringSize; // Number of ids on the ring
+	private PeerId successor; // Next node on the ring, null until joined
+	private PeerId predecessor; // Previous node on the ring, null if unknown
+	private long predecessorHeard; // Time in milliseconds the predecessor last stabilized with this node
+	private PeerId[] fingers; // Node responsible for the key 2^i after this node by i
+	private int nextFinger; // Finger refreshed next
+	private int provided; // Item id this node provides, -1 for none
+	private Map<Integer, Pending> pending; // FINDs awaiting an answer by request id
+	private Map<Integer, Map<PeerId, Long>> records; // Expiry times of the provider records by item id and provider
+	private AtomicInteger requestIds; // Source of request ids
+	private long[] hops; // Resolved lookups by the number of hops their FIND took
+	private AtomicLong messages; // Ring frames sent by this node
+	private long interval; // Stabilize interval in milliseconds
+	private long republish; // Time in milliseconds between repeated PUTs of the provider record
+	private long lastPublished; // Time in milliseconds the provider record was last put
+	private long timeout; // Longest time in milliseconds to wait for the providers of an item
+	private Clock clock; // Clock the ring's times are measured with
+
+	// Constructor method that takes in this peer's identity, neighbors, peer table and connections,
+	// the number of ids on the ring and the PeerConfig that provides the intervals, and starts
+	// maintaining the ring.
+	public ChordNode(Frame identity, Topology topology, PeerTable peers, Transport connections,
+			int ringSize, PeerConfig config) {
+		this.identity = identity;
+		this.self = peers.get(identity.getSourceIndex());
+		this.topology = topology;
+		this.peers = peers;
+		this.connections = connections;
+		this.ringSize = Math.max(1, ringSize);
+		int bits = 1;
+		while((1L << bits) < this.ringSize){
+			bits++;
+		}
+		this.fingers = new PeerId[bits];
+		this.provided = -1;
+		this.pending = new LinkedHashMap<Integer, Pending>(){
+			private static final long serialVersionUID = 1L;
+			protected boolean removeEldestEntry(Map.Entry<Integer, Pending> eldest){
+				return size() > MAX_PENDING;
+			}
+		};
+		this.records = new HashMap<>();
+		this.requestIds = new AtomicInteger();
+		this.hops = new long[bits + 2];
+		this.messages = new AtomicLong();
+		this.interval = Math.max(1, config.ringStabilizeInterval);
+		this.republish = Math.max(this.interval, config.ringRepublishInterval);
+		this.timeout = config.requestWindow;
+		this.clock = config.clock;
+		if(self.getIndex() == 0){
+			this.successor = self;
+		}
+		ScheduledExecutorService maintainer = config.scheduler != null ? config.scheduler : Executors.newSingleThreadScheduledExecutor(new ThreadFactory(){
+			public Thread newThread(Runnable task){
+				Thread thread = new Thread(task, "ChordNode");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		maintainer.scheduleWithFixedDelay(new Runnable(){
+			public void run(){
+				maintain();
+			}
+		}, this.interval, this.interval, TimeUnit.MILLISECONDS);
+	}
+
+	// The handles method returns true if frames of the provided type belong to the ring.
+	public static boolean handles(byte type){
+		return type >= Frame.FIND && type <= Frame.NOTIFY;
+	}
+
+	// The receive method handles a ring frame that reached this node.
+	public void receive(Frame frame) throws IOException{
+		switch(frame.getType()){
+			case Frame.FIND: route(frame); break;
+			case Frame.FOUND: found(frame); break;
+			case Frame.FETCH: fetch(frame); break;
+			case Frame.PROVIDERS: provider(frame); break;
+			case Frame.PUT: store(frame.getItem(), peers.intern(frame), true); break;
+			case Frame.DROP: store(frame.getItem(), peers.intern(frame), false); break;
+			case Frame.STABILIZE: stabilized(frame); break;
+			case Frame.PREDECESSOR: predecessor(peers.intern(frame)); break;
+			case Frame.NOTIFY: notified(peers.intern(frame)); break;
+			default: break;
+		}
+	}
+
+	// The resolve method returns the providers of an item, found through the ring. Returns no
+	// providers if this node hasn't joined the ring yet or the answer didn't arrive in time.
+	public PeerId[] resolve(int item){
+		Pending request = new Pending(RESOLVE, item);
+		if(!find(key(item), request)){
+			return new PeerId[0];
+		}
+		try{
+			request.done.await(timeout, TimeUnit.MILLISECONDS);
+		}
+		catch(InterruptedException e){ Thread.currentThread().interrupt(); }
+		synchronized(request){
+			return request.providers.toArray(new PeerId[request.providers.size()]);
+		}
+	}
+
+	// The provide method is used by a seller to set the item id it provides, or -1 for none. The
+	// record of the previous item is withdrawn and a record of the new one is stored.
+	public void provide(int item){
+		int previous;
+		synchronized(this){
+			if(item == this.provided){
+				return;
+			}
+			previous = this.provided;
+			this.provided = item;
+			this.lastPublished = clock.millis();
+		}
+		if(previous >= 0){
+			find(key(previous), new Pending(WITHDRAW, previous));
+		}
+		if(item >= 0){
+			find(key(item), new Pending(PROVIDE, item));
+		}
+	}
+
+	// The toString method returns the lookup hop histogram and the number of ring frames sent.
+	public synchronized String toString(){
+		StringBuilder histogram = new StringBuilder();
+		long lookups = 0;
+		for(int h = 0; h < hops.length; h++){
+			if(hops[h] > 0){
+				histogram.append(" ").append(h == hops.length - 1 ? h + "+" : "" + h).append(":").append(hops[h]);
+				lookups += hops[h];
+			}
+		}
+		return "Chord ring: " + lookups + " lookups, " + messages.get() + " messages, hops" + histogram;
+	}
+
+	// The key method hashes the name of an item to a key on the ring.
+	private int key(int item){
+		int h = ItemCatalog.getItemName(item).hashCode();
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		return (h & Integer.MAX_VALUE) % ringSize;
+	}
+
+	// The find method starts a FIND for a key from this node. Returns false if this node hasn't
+	// joined the ring yet.
+	private boolean find(int key, Pending request){
+		int requestId = requestIds.incrementAndGet();
+		synchronized(this){
+			if(successor == null){
+				return false;
+			}
+			pending.put(requestId, request);
+		}
+		try{
+			route(identity.derive(Frame.FIND, key, 0, requestId));
+		}
+		catch(IOException e){ System.out.println(e.getMessage()); }
+		return true;
+	}
+
+	// The route method passes a FIND on towards the key. If the key falls between this node and its
+	// successor the successor is responsible and the FIND's source is answered with a FOUND,
+	// otherwise the FIND is sent to the closest finger before the key. Nodes that cannot be
+	// reached are dropped and the next closest one is tried.
+	private void route(Frame find) throws IOException{
+		int key = find.getHopcount();
+		while(true){
+			PeerId responsible = null;
+			PeerId next = null;
+			synchronized(this){
+				if(successor == null){
+					return;
+				}
+				if(key == self.getIndex()){
+					responsible = self;
+				}
+				else if(successor.equals(self) || between(key, self.getIndex(), successor.getIndex())){
+					responsible = successor;
+				}
+				else{
+					next = closestPreceding(key);
+				}
+			}
+			if(responsible != null){
+				Frame found = responsible.getIdentity().derive(Frame.FOUND, key, find.getItem(), find.getSeqNum());
+				if(find.getSourceIndex() == self.getIndex()){
+					found(found);
+				}
+				else{
+					send(peers.intern(find), found);
+				}
+				return;
+			}
+			PeerId requester = peers.intern(find);
+			if(send(next, requester.getIdentity().derive(Frame.FIND, key, Math.min(255, find.getItem() + 1), find.getSeqNum()))){
+				return;
+			}
+		}
+	}
+
+	// The found method takes the answer to a FIND made by this node and acts on it according to
+	// the FIND's purpose.
+	private void found(Frame found) throws IOException{
+		PeerId responsible = peers.intern(found);
+		Pending request;
+		synchronized(this){
+			request = pending.get(found.getSeqNum());
+			if(request == null){
+				return;
+			}
+			if(request.purpose != RESOLVE){
+				pending.remove(found.getSeqNum());
+			}
+			if(request.purpose == JOIN){
+				if(successor == null && !responsible.equals(self)){
+					successor = responsible;
+				}
+				return;
+			}
+			if(request.purpose >= 0){
+				fingers[request.purpose] = responsible.equals(self) ? null : responsible;
+				return;
+			}
+			if(request.purpose == RESOLVE){
+				hops[Math.min(found.getItem(), hops.length - 1)]++;
+			}
+		}
+		if(request.purpose == RESOLVE){
+			Frame fetch = identity.derive(Frame.FETCH, 0, request.item, found.getSeqNum());
+			if(responsible.equals(self)){
+				fetch(fetch);
+			}
+			else if(!send(responsible, fetch)){
+				request.done.countDown();
+			}
+		}
+		else{
+			byte type = request.purpose == PROVIDE ? Frame.PUT : Frame.DROP;
+			if(responsible.equals(self)){
+				store(request.item, self, request.purpose == PROVIDE);
+			}
+			else{
+				send(responsible, identity.derive(type, 0, request.item, 0));
+			}
+		}
+	}
+
+	// The fetch method answers a FETCH with a PROVIDERS frame for every live provider record of the
+	// item, or a single PROVIDERS frame naming no provider.
+	private void fetch(Frame fetch) throws IOException{
+		List<PeerId> providers = new ArrayList<>();
+		synchronized(this){
+			Map<PeerId, Long> itemRecords = records.get(fetch.getItem());
+			if(itemRecords != null){
+				long now = clock.millis();
+				for(Map.Entry<PeerId, Long> record : itemRecords.entrySet()){
+					if(record.getValue() > now && providers.size() < 255){
+						providers.add(record.getKey());
+					}
+				}
+			}
+		}
+		List<Frame> answers = new ArrayList<>();
+		if(providers.isEmpty()){
+			answers.add(identity.derive(Frame.PROVIDERS, 0, 0, fetch.getSeqNum()));
+		}
+		for(PeerId provider : providers){
+			answers.add(provider.getIdentity().derive(Frame.PROVIDERS, 0, providers.size(), fetch.getSeqNum()));
+		}
+		for(Frame answer : answers){
+			if(fetch.getSourceIndex() == self.getIndex()){
+				provider(answer);
+			}
+			else if(!send(peers.intern(fetch), answer)){
+				return;
+			}
+		}
+	}
+
+	// The provider method adds a provider from a PROVIDERS frame to the resolve it answers, which
+	// is done once every provider arrived.
+	private void provider(Frame answer) throws IOException{
+		Pending request;
+		synchronized(this){
+			request = pending.get(answer.getSeqNum());
+		}
+		if(request == null || request.purpose != RESOLVE){
+			return;
+		}
+		synchronized(request){
+			if(answer.getItem() > 0){
+				request.providers.add(peers.intern(answer));
+			}
+			if(request.providers.size() >= answer.getItem()){
+				synchronized(this){
+					pending.remove(answer.getSeqNum());
+				}
+				request.done.countDown();
+			}
+		}
+	}
+
+	// The store method adds or removes the provider record of a provider for an item this node is
+	// responsible for. Records expire after three republish intervals.
+	private synchronized void store(int item, PeerId provider, boolean add){
+		Map<PeerId, Long> itemRecords = records.get(item);
+		if(add){
+			if(itemRecords == null){
+				itemRecords = new HashMap<>();
+				records.put(item, itemRecords);
+			}
+			itemRecords.put(provider, clock.millis() + 3 * republish);
+		}
+		else if(itemRecords != null){
+			itemRecords.remove(provider);
+		}
+	}
+
+	// The stabilized method answers a node that asks for this node's predecessor with a
+	// PREDECESSOR frame, naming this node itself if it has no predecessor.
+	private void stabilized(Frame stabilize) throws IOException{
+		PeerId asker = peers.intern(stabilize);
+		PeerId known;
+		synchronized(this){
+			if(asker.equals(predecessor)){
+				predecessorHeard = clock.millis();
+			}
+			known = predecessor != null ? predecessor : self;
+		}
+		send(asker, known.getIdentity().derive(Frame.PREDECESSOR, 0, 0, 0));
+	}
+
+	// The predecessor method takes the predecessor of this node's successor, which becomes the
+	// successor if it lies between the two, and notifies the successor of this node.
+	private void predecessor(PeerId candidate){
+		PeerId notified;
+		synchronized(this){
+			if(successor == null){
+				return;
+			}
+			if(!candidate.equals(self) && !candidate.equals(successor) &&
+					between(candidate.getIndex(), self.getIndex(), successor.getIndex())){
+				successor = candidate;
+			}
+			notified = successor;
+		}
+		if(!notified.equals(self)){
+			send(notified, identity.derive(Frame.NOTIFY, 0, 0, 0));
+		}
+	}
+
+	// The notified method takes a node that may be this node's predecessor, which becomes the
+	// predecessor if this node has none or the node lies between the two.
+	private synchronized void notified(PeerId candidate){
+		if(candidate.equals(self)){
+			return;
+		}
+		if(predecessor == null || (!candidate.equals(predecessor) &&
+				between(candidate.getIndex(), predecessor.getIndex(), self.getIndex()))){
+			predecessor = candidate;
+		}
+		predecessorHeard = clock.millis();
+	}
+
+	// The maintain method runs every stabilize interval. A node that hasn't joined yet asks one of
+	// its neighbors to find its successor. A joined node stabilizes with its successor, refreshes
+	// a finger, forgets a silent predecessor, removes expired records and repeats its PUT.
+	private void maintain(){
+		PeerId stabilizeWith = null;
+		PeerId joinThrough = null;
+		int finger = -1;
+		int republished = -1;
+		long now = clock.millis();
+		synchronized(this){
+			if(successor == null){
+				PeerId[] neighbors = topology.getSnapshot().getAll();
+				if(neighbors.length > 0){
+					joinThrough = neighbors[(int) ((now / interval) % neighbors.length)];
+				}
+			}
+			else{
+				if(successor.equals(self)){
+					if(predecessor != null){
+						successor = predecessor;
+					}
+				}
+				else{
+					stabilizeWith = successor;
+				}
+				finger = nextFinger;
+				nextFinger = (nextFinger + 1) % fingers.length;
+				if(predecessor != null && now - predecessorHeard > 4 * interval){
+					predecessor = null;
+				}
+				expire(now);
+				if(provided >= 0 && now - lastPublished >= republish){
+					republished = provided;
+					lastPublished = now;
+				}
+			}
+		}
+		if(joinThrough != null){
+			int requestId = requestIds.incrementAndGet();
+			synchronized(this){
+				pending.put(requestId, new Pending(JOIN, -1));
+			}
+			send(joinThrough, identity.derive(Frame.FIND, self.getIndex(), 0, requestId));
+			return;
+		}
+		if(stabilizeWith != null){
+			send(stabilizeWith, identity.derive(Frame.STABILIZE, 0, 0, 0));
+		}
+		if(finger >= 0){
+			find((int) ((self.getIndex() + (1L << finger)) % ringSize), new Pending(finger, -1));
+		}
+		if(republished >= 0){
+			find(key(republished), new Pending(PROVIDE, republished));
+		}
+	}
+
+	// The expire method removes the provider records that expired. Must be called while holding
+	// the lock.
+	private void expire(long now){
+		Iterator<Map<PeerId, Long>> items = records.values().iterator();
+		while(items.hasNext()){
+			Map<PeerId, Long> itemRecords = items.next();
+			Iterator<Long> expiries = itemRecords.values().iterator();
+			while(expiries.hasNext()){
+				if(expiries.next() <= now){
+					expiries.remove();
+				}
+			}
+			if(itemRecords.isEmpty()){
+				items.remove();
+			}
+		}
+	}
+
+	// The closestPreceding method returns the finger closest before the key, or the successor if
+	// no finger lies between this node and the key. Must be called while holding the lock.
+	private PeerId closestPreceding(int key){
+		for(int i = fingers.length - 1; i >= 0; i--){
+			PeerId finger = fingers[i];
+			if(finger != null && finger.getIndex() != key && between(finger.getIndex(), self.getIndex(), key)){
+				return finger;
+			}
+		}
+		return successor;
+	}
+
+	// The between method returns true if the id lies after start and at or before end on the ring.
+	private boolean between(int id, int start, int end){
+		if(start < end){
+			return id > start && id <= end;
+		}
+		return id > start || id <= end;
+	}
+
+	// The send method sends a ring frame to a node. A node that cannot be reached is dropped from
+	// the finger table, replaced as the successor by the closest finger and forgotten as the
+	// predecessor, and false is returned.
+	private boolean send(PeerId peerID, Frame frame){
+		try{
+			connections.send(peerID, frame);
+			messages.incrementAndGet();
+			return true;
+		}
+		catch(IOException e){
+			System.out.println(peerID + ": " + e.getMessage());
+			connections.remove(peerID);
+			synchronized(this){
+				for(int i = 0; i < fingers.length; i++){
+					if(peerID.equals(fingers[i])){
+						fingers[i] = null;
+					}
+				}
+				if(peerID.equals(predecessor)){
+					predecessor = null;
+				}
+				if(peerID.equals(successor)){
+					successor = self;
+					for(PeerId finger : fingers){
+						if(finger != null){
+							successor = finger;
+							break;
+						}
+					}
+				}
+			}
+			return false;
+		}
+	}
+
+	/*
+	 * The Pending class is a FIND made by this node that awaits its answer. A resolve also
+	 * collects the providers of its item until every provider arrived.
+	 */
+	private static class Pending {
+
+		// Global variables
+		private int purpose; // What the answer is used for, a finger index or one of the purposes
+		private int item; // Item id the FIND is made for, -1 if none
+		private List<PeerId> providers = new ArrayList<>(); // Providers found by a resolve
+		private CountDownLatch done = new CountDownLatch(1); // Counted down once a resolve is answered
+
+		// Constructor method that takes in the purpose and item of the FIND.
+		public Pending(int purpose, int item){
+			this.purpose = purpose;
+			this.item = item;
+		}
+
+	}
+
+}
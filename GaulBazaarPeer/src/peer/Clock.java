@@ -0,0 +1,32 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+/*
+ * The Clock interface is the source of the time a peer measures response times, deadlines and
+ * expiry times with. Peers normally read the System time, a simulation hands them a virtual clock
+ * that only moves forward when its next event is run. Deadlines and expiry times are kept in
+ * milliseconds, latencies are measured in nanoseconds, which for the System clock are read from
+ * its monotonic timer.
+ */
+public interface Clock {
+
+	// The clock of the System time
+	public static final Clock SYSTEM = new Clock(){
+		public long millis(){
+			return System.currentTimeMillis();
+		}
+		public long nanos(){
+			return System.nanoTime();
+		}
+	};
+
+	// The millis method returns the current time in milliseconds.
+	public long millis();
+
+	// The nanos method returns the current time in nanoseconds, which is only meaningful as the
+	// difference between two readings.
+	public long nanos();
+
+}
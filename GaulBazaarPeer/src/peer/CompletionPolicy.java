@@ -0,0 +1,18 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+/*
+ * The CompletionPolicy enum decides when a buyer stops collecting seller replies to a lookup
+ * and chooses the seller to purchase from. FIRST_REPLY closes the request on the first reply,
+ * K_REPLIES once a set number of replies arrived, ADAPTIVE at a deadline derived from the reply
+ * latencies observed so far, and HARD_CAP only when the request window runs out. Every policy
+ * closes the request once the request window runs out.
+ */
+public enum CompletionPolicy {
+	FIRST_REPLY,
+	K_REPLIES,
+	ADAPTIVE,
+	HARD_CAP
+}
@@ -0,0 +1,157 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+// Import statements
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * The ConnectionManager class is the TCP Transport. It keeps one long-lived connection to every
+ * peer this peer sends messages to, instead of opening and closing a socket for every message.
+ * Connections are opened lazily on the first message to a peer, and if a connection turns out
+ * to be broken it is re-opened once before the send is reported as failed. Every Frame is written with a
+ * single write, so frames from different threads never interleave on a connection. Connecting
+ * to a peer gives up after the connect timeout. Frames sent to this peer are served by a
+ * BaseServer listening on the peer's port.
+ */
+public class ConnectionManager implements Transport {
+
+	// Global variables
+	private ConcurrentMap<PeerId, PeerConnection> connections; // Open connections by peer
+	private int connectTimeout; // Longest time to wait for a connection in milliseconds
+
+	// Constructor method that takes in the connect timeout and initializes the connection map.
+	public ConnectionManager(int connectTimeout) {
+		this.connections = new ConcurrentHashMap<>();
+		this.connectTimeout = connectTimeout;
+	}
+
+	// The send method sends a frame to the provided peer over that peer's connection. Throws an
+	// exception if the peer cannot be reached.
+	public void send(PeerId peerID, Frame frame) throws IOException{
+		PeerConnection connection = connections.get(peerID);
+		if(connection == null){
+			PeerConnection newConnection = new PeerConnection(peerID);
+			connection = connections.putIfAbsent(peerID, newConnection);
+			if(connection == null){
+				connection = newConnection;
+			}
+		}
+		connection.send(FrameCodec.encode(frame));
+	}
+
+	// The remove method closes and forgets the connection to a peer that is no longer a neighbor.
+	// A send that is still blocked on the connection fails right away.
+	public void remove(PeerId peerID){
+		PeerConnection connection = connections.remove(peerID);
+		if(connection != null){
+			connection.abort();
+		}
+	}
+
+	// The serve method listens on the peer's port with a BaseServer that serves its clients as the
+	// PeerConfig decides and hands their frames to the FrameHandler. Serves on the calling thread.
+	public void serve(PeerId peerID, final FrameHandler handler, PeerConfig config) throws IOException{
+		BaseServer server = new BaseServer(peerID.getPort(), config.serverMode, config.eventLoopThreads, config.executorMode){
+			public Runnable getRequestHandler(Frame frame, ClientConnection client){
+				return handler.getRequestHandler(frame, client);
+			}
+		};
+		server.enable();
+	}
+
+	/*
+	 * The PeerConnection class is the connection to a single peer. Sends hold a ReentrantLock so
+	 * that one frame is written at a time, which unlike a synchronized method does not pin a
+	 * virtual thread blocked on the socket to its carrier thread.
+	 */
+	private class PeerConnection {
+
+		// Global variables
+		private PeerId peerID; // The peer at the other end
+		private volatile Socket socket; // The open socket, null until the first send
+		private OutputStream msgToPeer; // The outgoing message channel of the socket
+		private volatile boolean aborted; // Set once the connection was removed from the manager
+		private final ReentrantLock lock = new ReentrantLock(); // Lock held while using the socket
+
+		// Constructor method that takes in the peer at the other end.
+		public PeerConnection(PeerId peerID){
+			this.peerID = peerID;
+		}
+
+		// The send method writes a frame to the peer, opening the connection if needed. If the
+		// write fails on an existing connection, the connection is re-opened and the frame is
+		// written again.
+		public void send(byte[] frame) throws IOException{
+			lock.lock();
+			try{
+				boolean reused = socket != null;
+				try{
+					write(frame);
+				}
+				catch(IOException e){
+					close();
+					if(!reused || aborted){
+						throw e;
+					}
+					write(frame);
+				}
+			}
+			finally{
+				lock.unlock();
+			}
+		}
+
+		// The write method opens the socket if it isn't open yet and writes a frame to it.
+		private void write(byte[] frame) throws IOException{
+			if(aborted){
+				throw new IOException("Connection to " + peerID + " was closed");
+			}
+			if(socket == null){
+				Socket newSocket = new Socket();
+				newSocket.setTcpNoDelay(true);
+				newSocket.connect(peerID.getAddress(), connectTimeout);
+				socket = newSocket;
+				msgToPeer = newSocket.getOutputStream();
+				if(aborted){
+					throw new IOException("Connection to " + peerID + " was closed");
+				}
+			}
+			msgToPeer.write(frame);
+			msgToPeer.flush();
+		}
+
+		// The close method closes the socket so that the next send opens a new one.
+		public void close(){
+			lock.lock();
+			try{
+				if(socket != null){
+					try{ socket.close(); } catch(IOException e){ }
+					socket = null;
+					msgToPeer = null;
+				}
+			}
+			finally{
+				lock.unlock();
+			}
+		}
+
+		// The abort method closes the connection for good without waiting for the lock, so that
+		// a send blocked on the socket fails and no later send opens a new socket.
+		public void abort(){
+			aborted = true;
+			Socket openSocket = socket;
+			if(openSocket != null){
+				try{ openSocket.close(); } catch(IOException e){ }
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,17 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+/*
+ * The DelayDistribution enum selects how the jitter of an emulated link varies the delay of its
+ * frames. UNIFORM adds a delay drawn evenly from minus to plus the jitter, NORMAL one drawn from
+ * a normal distribution with the jitter as its standard deviation, and PARETO a heavy-tailed
+ * delay of at least zero scaled by the jitter, as seen on congested wide-area paths. A frame is
+ * never delayed by less than zero.
+ */
+public enum DelayDistribution {
+	UNIFORM,
+	NORMAL,
+	PARETO
+}
@@ -0,0 +1,144 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+// Import statements
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * The DirectoryClient class is a peer's connection to the registry's item directory in the
+ * DIRECTORY SearchMode. Sellers publish their item over it whenever the item changes, and
+ * buyers query it for the sellers of an item. The connection is opened lazily and re-opened on
+ * the next use after it broke. A query waits for the registry's answer while holding the lock,
+ * so only one query is answered over the connection at a time. Publications carry a version that
+ * grows with every publication, so the registry can ignore one it handles out of order.
+ */
+public class DirectoryClient {
+
+	// Global variables
+	private Frame identity; // A frame with this peer as its source
+	private InetSocketAddress registry; // Address of the registry
+	private int connectTimeout; // Longest time to wait for the connection in milliseconds
+	private int readTimeout; // Longest time to wait for an answer in milliseconds
+	private int listings; // Most sellers asked for in a query
+	private Socket socket; // The open socket, null until first used
+	private OutputStream msgToRegistry; // The outgoing message channel of the socket
+	private DataInputStream msgFromRegistry; // The incoming message channel of the socket
+	private int published; // Item id last published, -1 for none
+	private int version; // Version of the last publication
+	private AtomicLong queries; // Queries made
+	private AtomicLong found; // Sellers named in answers
+	private AtomicLong empty; // Queries that named no seller
+	private final ReentrantLock lock = new ReentrantLock(); // Lock held while using the socket
+
+	// Constructor method that takes in this peer's identity, the registry's address and the
+	// PeerConfig that provides the timeouts and the number of sellers asked for.
+	public DirectoryClient(Frame identity, InetSocketAddress registry, PeerConfig config) {
+		this.identity = identity;
+		this.registry = registry;
+		this.connectTimeout = config.connectTimeout;
+		this.readTimeout = config.connectTimeout + config.writeTimeout;
+		this.listings = Math.max(1, config.directoryListings);
+		this.published = -1;
+		this.version = 0;
+		this.queries = new AtomicLong();
+		this.found = new AtomicLong();
+		this.empty = new AtomicLong();
+	}
+
+	// The publish method publishes the item id this seller sells, or -1 for none, if it changed
+	// since the last publication. A publication that could not be sent is retried on the next call.
+	public void publish(int item){
+		lock.lock();
+		try{
+			if(item == this.published){
+				return;
+			}
+			this.version++;
+			Frame publication = identity.derive(Frame.PUBLISH, item >= 0 ? 1 : 0, Math.max(0, item), this.version);
+			send(publication);
+			this.published = item;
+		}
+		catch(IOException e){
+			System.out.println(registry + ": " + e.getMessage());
+			close();
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+
+	// The query method asks the directory for sellers of an item and returns them. Returns no
+	// sellers if the registry cannot be reached.
+	public PeerId[] query(int item, int seqNum, PeerTable peers){
+		List<PeerId> sellers = new ArrayList<>();
+		lock.lock();
+		try{
+			send(identity.derive(Frame.QUERY, this.listings, item, seqNum));
+			Frame frame = FrameCodec.read(msgFromRegistry);
+			while(frame != null && frame.getType() == Frame.LISTING){
+				sellers.add(peers.intern(frame));
+				frame = FrameCodec.read(msgFromRegistry);
+			}
+			if(frame == null){
+				throw new IOException("Registry closed the connection");
+			}
+		}
+		catch(IOException e){
+			System.out.println(registry + ": " + e.getMessage());
+			sellers.clear();
+			close();
+		}
+		finally{
+			lock.unlock();
+		}
+		queries.incrementAndGet();
+		found.addAndGet(sellers.size());
+		if(sellers.isEmpty()){
+			empty.incrementAndGet();
+		}
+		return sellers.toArray(new PeerId[sellers.size()]);
+	}
+
+	// The toString method returns the counters of the queries.
+	public String toString(){
+		return "Directory: " + queries.get() + " queries, " + found.get() + " sellers found, " + empty.get() + " without sellers";
+	}
+
+	// The send method opens the socket if it isn't open yet and writes a frame to it. Must be
+	// called while holding the lock.
+	private void send(Frame frame) throws IOException{
+		if(socket == null){
+			Socket newSocket = new Socket();
+			newSocket.setTcpNoDelay(true);
+			newSocket.connect(registry, connectTimeout);
+			newSocket.setSoTimeout(readTimeout);
+			socket = newSocket;
+			msgToRegistry = newSocket.getOutputStream();
+			msgFromRegistry = new DataInputStream(new BufferedInputStream(newSocket.getInputStream()));
+		}
+		FrameCodec.write(frame, msgToRegistry);
+	}
+
+	// The close method closes the socket so that the next use opens a new one. Must be called
+	// while holding the lock.
+	private void close(){
+		if(socket != null){
+			try{ socket.close(); } catch(IOException e){ }
+			socket = null;
+			msgToRegistry = null;
+			msgFromRegistry = null;
+		}
+	}
+
+}
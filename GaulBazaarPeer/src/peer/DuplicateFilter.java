@@ -0,0 +1,110 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+// Import statements
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+ * The DuplicateFilter class detects lookups a peer has seen before, to prevent double forwards
+ * or double replies, without taking a lock. Every source peer index has one slot that packs the
+ * highest sequence number seen from that source into its upper 32 bits and a bitmap of the 32
+ * sequence numbers up to and including it into its lower 32 bits, so a lookup that arrives out
+ * of order is still accepted if it wasn't seen yet. Slots are updated with compare-and-set.
+ * Slots live in pages of 1024 sources that are only allocated once a source of the page is
+ * seen, which keeps memory proportional to the number of sources, and the page directory only
+ * covers the number of peers when it is known. Lookups older than the window are treated as
+ * duplicates, and lookups from a source index beyond the covered sources are always accepted,
+ * leaving them bounded by their hopcount alone.
+ */
+public class DuplicateFilter {
+
+	// Global variables
+	private static final int PAGE_BITS = 10; // Sources per page as a power of two
+	private static final int PAGE_SIZE = 1 << PAGE_BITS; // Sources per page
+	private static final int WINDOW = 32; // Sequence numbers tracked per source
+	public static final int MAX_SOURCES = 1 << 22; // Number of source indices the filter covers
+	private int sources; // Number of source indices this filter covers
+	private AtomicReferenceArray<AtomicLongArray> pages; // Slot pages by page number, null until used
+
+	// Constructor method that creates the page directory for every source index up to
+	// MAX_SOURCES, no page is allocated yet.
+	public DuplicateFilter() {
+		this(MAX_SOURCES);
+	}
+
+	// Constructor method that takes in the number of source indices to cover, at most
+	// MAX_SOURCES and all of them if 0, and creates the page directory for them.
+	public DuplicateFilter(int sources) {
+		this.sources = sources <= 0 ? MAX_SOURCES : Math.min(sources, MAX_SOURCES);
+		this.pages = new AtomicReferenceArray<>((this.sources + PAGE_SIZE - 1) >> PAGE_BITS);
+	}
+
+	// The firstSeen method takes a source peer index and lookup sequence number and returns true if
+	// this lookup hasn't been seen before, recording it, or false if it has or is too old to tell.
+	public boolean firstSeen(int sourceIndex, int seqNum){
+
+		// Sources outside the covered range can't be tracked
+		if(sourceIndex < 0 || sourceIndex >= sources){
+			return true;
+		}
+		AtomicLongArray page = getPage(sourceIndex >> PAGE_BITS);
+		int slot = sourceIndex & (PAGE_SIZE - 1);
+
+		// Retry until the slot is updated or the lookup turns out to be a duplicate
+		while(true){
+			long old = page.get(slot);
+			long updated;
+			if(old == 0){
+
+				// First lookup of this source
+				updated = pack(seqNum, 1);
+			}
+			else{
+				int highest = (int) (old >>> 32);
+				int window = (int) old;
+				int ahead = seqNum - highest;
+				if(ahead > 0){
+
+					// Newer than every lookup seen, slide the window forward
+					updated = pack(seqNum, ahead >= WINDOW ? 1 : (window << ahead) | 1);
+				}
+				else{
+
+					// Older or equal, accept it only if it is inside the window and not seen yet
+					int behind = -ahead;
+					if(behind >= WINDOW || (window & (1 << behind)) != 0){
+						return false;
+					}
+					updated = pack(highest, window | (1 << behind));
+				}
+			}
+			if(page.compareAndSet(slot, old, updated)){
+				return true;
+			}
+		}
+	}
+
+	// The getPage method returns the page with the provided number, allocating it if needed.
+	private AtomicLongArray getPage(int pageNum){
+		AtomicLongArray page = pages.get(pageNum);
+		if(page == null){
+			AtomicLongArray newPage = new AtomicLongArray(PAGE_SIZE);
+			if(pages.compareAndSet(pageNum, null, newPage)){
+				page = newPage;
+			}
+			else{
+				page = pages.get(pageNum);
+			}
+		}
+		return page;
+	}
+
+	// The pack method combines the highest sequence number and the window bitmap into a slot value.
+	private static long pack(int highest, int window){
+		return ((long) highest << 32) | (window & 0xFFFFFFFFL);
+	}
+
+}
@@ -0,0 +1,258 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+// Import statements
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/*
+ * The EventLoop class runs a single Selector that accepts, reads from and writes to any number
+ * of non-blocking connections. Incoming bytes are decoded into Frames and passed to a Listener,
+ * and frames sent on a Connection are queued and written whenever the channel is writable. All
+ * work on a selector is done by the loop's own thread, other threads hand work to it through a
+ * task queue.
+ */
+public class EventLoop implements Runnable {
+
+	/*
+	 * The Listener interface is implemented by the server that owns the event loop and is
+	 * notified of accepted connections and of every complete frame read from a connection.
+	 */
+	public interface Listener {
+		public void connectionAccepted(Connection connection);
+		public void frameReceived(Connection connection, Frame frame);
+	}
+
+	// Global variables
+	private Selector selector; // Selector that multiplexes this loop's channels
+	private Listener listener; // Server notified of connections and frames
+	private Queue<Runnable> tasks; // Work handed to this loop by other threads
+	private EventLoop[] group; // Loops that accepted connections are spread over
+	private int nextLoop; // Index of the loop that receives the next accepted connection
+
+	// Constructor method that opens this loop's selector and initializes global variables.
+	public EventLoop(Listener listener) throws IOException{
+		this.selector = Selector.open();
+		this.listener = listener;
+		this.tasks = new ConcurrentLinkedQueue<>();
+		this.group = new EventLoop[]{ this };
+		this.nextLoop = 0;
+	}
+
+	// The listen method makes this loop accept connections on the provided server channel and
+	// hand them out round-robin to the loops in the group. Must be called before the loop runs.
+	public void listen(ServerSocketChannel server, EventLoop[] group) throws IOException{
+		this.group = group;
+		server.configureBlocking(false);
+		server.register(selector, SelectionKey.OP_ACCEPT);
+	}
+
+	// The register method hands an accepted channel to this loop, which registers it for reads
+	// and notifies the listener.
+	public void register(final SocketChannel channel){
+		execute(new Runnable(){
+			public void run(){
+				try{
+					channel.configureBlocking(false);
+					SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+					Connection connection = new Connection(EventLoop.this, channel, key);
+					key.attach(connection);
+					listener.connectionAccepted(connection);
+				}
+				catch(IOException e){
+					System.out.println(e.getMessage());
+					try{ channel.close(); } catch(IOException ce){ }
+				}
+			}
+		});
+	}
+
+	// The execute method queues a task to be run by this loop's thread and wakes the selector.
+	public void execute(Runnable task){
+		tasks.add(task);
+		selector.wakeup();
+	}
+
+	// Run method that selects ready channels and services them until the selector fails.
+	public void run(){
+		try{
+			while(true){
+				selector.select();
+
+				// Run the work handed over by other threads
+				Runnable task;
+				while((task = tasks.poll()) != null){
+					task.run();
+				}
+
+				// Service every channel that is ready
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while(keys.hasNext()){
+					SelectionKey key = keys.next();
+					keys.remove();
+					try{
+						if(key.isAcceptable()){
+							accept((ServerSocketChannel) key.channel());
+						}
+						else{
+							Connection connection = (Connection) key.attachment();
+							if(key.isReadable()){
+								connection.read();
+							}
+							if(key.isValid() && key.isWritable()){
+								connection.flush();
+							}
+						}
+					}
+					catch(CancelledKeyException e){ } // Connection was closed while being serviced
+				}
+			}
+		}
+		catch(IOException e){ System.out.println(e.getMessage()); }
+	}
+
+	// The accept method accepts a pending connection and hands it to the next loop in the group.
+	private void accept(ServerSocketChannel server) throws IOException{
+		SocketChannel channel = server.accept();
+		if(channel != null){
+			group[nextLoop].register(channel);
+			nextLoop = (nextLoop + 1) % group.length;
+		}
+	}
+
+	/*
+	 * The Connection class is one non-blocking client connection served by an EventLoop. Frames
+	 * sent on it are queued and written by the loop, and received bytes are kept until a whole
+	 * frame has arrived.
+	 */
+	public static class Connection implements ClientConnection {
+
+		// Global variables
+		private EventLoop loop; // Loop serving this connection
+		private SocketChannel channel; // Non-blocking channel with the client
+		private SelectionKey key; // Key of the channel in the loop's selector
+		private InetSocketAddress remoteAddress; // Address of the client
+		private Queue<ByteBuffer> writes; // Outgoing data not yet written
+		private ByteBuffer inbound; // Received bytes of frames that are not complete yet
+		private boolean closing; // Indicates the connection closes once all writes are done
+
+		// Constructor method that initializes global variables for a newly registered channel.
+		private Connection(EventLoop loop, SocketChannel channel, SelectionKey key){
+			this.loop = loop;
+			this.channel = channel;
+			this.key = key;
+			this.remoteAddress = (InetSocketAddress) channel.socket().getRemoteSocketAddress();
+			this.writes = new ConcurrentLinkedQueue<>();
+			this.inbound = ByteBuffer.allocate(4 * (FrameCodec.MAX_FRAME_LENGTH + 2));
+			this.closing = false;
+		}
+
+		// The send method queues a frame for the loop to write, it may be called from any thread.
+		public void send(Frame frame) throws IOException{
+			writes.add(ByteBuffer.wrap(FrameCodec.encode(frame)));
+			loop.execute(new Runnable(){
+				public void run(){
+					flush();
+				}
+			});
+		}
+
+		// The close method closes the connection once every queued frame has been written.
+		public void close(){
+			loop.execute(new Runnable(){
+				public void run(){
+					closing = true;
+					flush();
+				}
+			});
+		}
+
+		// Getter method for the client's socket address
+		public InetSocketAddress getRemoteAddress(){
+			return this.remoteAddress;
+		}
+
+		// The read method reads whatever the client sent and passes every complete frame to the
+		// loop's listener. The connection is closed when the client closes its side or sends a
+		// malformed frame.
+		private void read(){
+			try{
+				int count = channel.read(inbound);
+				if(count < 0){
+					closing = true;
+					flush();
+					return;
+				}
+				inbound.flip();
+				while(inbound.remaining() >= 2){
+					int length = inbound.getShort(inbound.position()) & 0xFFFF;
+					if(length > FrameCodec.MAX_FRAME_LENGTH){
+						throw new IOException("Invalid frame length " + length);
+					}
+					if(inbound.remaining() < 2 + length){
+						break;
+					}
+					inbound.position(inbound.position() + 2);
+					int end = inbound.position() + length;
+					Frame frame = FrameCodec.decode(inbound, length);
+					inbound.position(end);
+					loop.listener.frameReceived(this, frame);
+				}
+				inbound.compact();
+			}
+			catch(IOException e){
+				System.out.println(e.getMessage());
+				closeNow();
+			}
+		}
+
+		// The flush method writes queued data until the channel cannot take more, and registers
+		// for write readiness if data is left over. Only called by the loop's thread.
+		private void flush(){
+			if(!key.isValid()){
+				return;
+			}
+			try{
+				ByteBuffer next;
+				while((next = writes.peek()) != null){
+					channel.write(next);
+					if(next.hasRemaining()){
+						break;
+					}
+					writes.poll();
+				}
+				if(writes.isEmpty()){
+					if(closing){
+						closeNow();
+					}
+					else{
+						key.interestOps(SelectionKey.OP_READ);
+					}
+				}
+				else{
+					key.interestOps(closing ? SelectionKey.OP_WRITE : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+				}
+			}
+			catch(IOException e){ closeNow(); }
+		}
+
+		// The closeNow method removes the connection from the loop and closes the channel.
+		private void closeNow(){
+			key.cancel();
+			try{ channel.close(); } catch(IOException e){ }
+		}
+
+	}
+
+}
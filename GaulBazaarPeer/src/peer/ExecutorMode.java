@@ -0,0 +1,16 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+/*
+ * The ExecutorMode enum selects what kind of threads run a BaseServer's request handlers.
+ * PLATFORM uses ordinary operating system threads, VIRTUAL runs every handler on its own
+ * virtual thread so that handlers blocked on sockets or monitors cost almost nothing. INLINE runs
+ * every handler on the thread that hands it over, for simulations that run on a single thread.
+ */
+public enum ExecutorMode {
+	PLATFORM,
+	VIRTUAL,
+	INLINE
+}
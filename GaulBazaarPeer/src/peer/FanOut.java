@@ -0,0 +1,171 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+// Import statements
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * The FanOut class sends a frame to a number of neighbors at once instead of one after the
+ * other, so that a slow or dead neighbor only delays its own delivery. Every destination is sent
+ * to over the peer's Transport on a thread of a pool shared by the peers of the process, so a
+ * delivery may wait in the pool's queue before it runs. A delivery's timeout starts when it
+ * begins running: one that runs past it is aborted and its neighbor is removed from the Topology
+ * and the Transport, one that is still queued is waited for. A round ends when every delivery
+ * finished or was aborted. Deliveries the pool turned away or that were still queued when the
+ * sending thread was interrupted are not failures of their neighbors, only sends that failed or
+ * ran too long are.
+ */
+public class FanOut {
+
+	// Global variables
+	private Transport connections; // Carries frames to other peers
+	private Topology topology; // This peer's neighbors
+	private ExecutorService senders; // Runs deliveries, shared by the peers of the process
+	private long sendTimeout; // Longest time a delivery may run in milliseconds
+
+	// Constructor method that takes in the connections and topology of this peer and the
+	// PeerConfig that provides the executor mode and the connect and write timeouts.
+	public FanOut(Transport connections, Topology topology, PeerConfig config) {
+		this.connections = connections;
+		this.topology = topology;
+		this.senders = HandlerExecutors.getSharedPool(config.executorMode);
+		this.sendTimeout = config.connectTimeout + config.writeTimeout;
+	}
+
+	// This version of the send method takes a list of the peers to send the frame to.
+	public List<PeerId> send(List<PeerId> destinations, Frame frame){
+		return send(destinations.toArray(new PeerId[destinations.size()]), frame);
+	}
+
+	// The send method sends a frame to every provided neighbor at once and waits for the round
+	// to end. Neighbors that could not be reached are removed and returned.
+	public List<PeerId> send(PeerId[] destinations, Frame frame){
+
+		// Start a delivery for every destination, a delivery the pool turns away is not sent
+		CountDownLatch round = new CountDownLatch(destinations.length);
+		List<Delivery> deliveries = new ArrayList<>(destinations.length);
+		for(PeerId neighborID : destinations){
+			Delivery delivery = new Delivery(neighborID, frame, round);
+			try{
+				senders.execute(delivery);
+				deliveries.add(delivery);
+			}
+			catch(RejectedExecutionException e){
+				round.countDown();
+			}
+		}
+
+		// Wait for every delivery to finish, aborting those that run past their timeout. Queued
+		// deliveries have not started their timeout, so they are checked again later.
+		List<PeerId> failed = new ArrayList<>();
+		List<Delivery> running = new ArrayList<>(deliveries);
+		try{
+			long wait = sendTimeout;
+			while(!running.isEmpty() && !round.await(wait, TimeUnit.MILLISECONDS)){
+				long now = System.nanoTime();
+				wait = sendTimeout;
+				for(Iterator<Delivery> i = running.iterator(); i.hasNext();){
+					Delivery delivery = i.next();
+					long remaining = delivery.remaining(now);
+					if(delivery.isFinished()){
+						i.remove();
+					}
+					else if(remaining <= 0){
+						failed.add(delivery.neighborID);
+						i.remove();
+					}
+					else{
+						wait = Math.min(wait, remaining);
+					}
+				}
+			}
+		}
+		catch(InterruptedException e){ Thread.currentThread().interrupt(); }
+
+		// Collect the deliveries that failed, those still queued when the wait was interrupted
+		// have not failed
+		for(Delivery delivery : deliveries){
+			if(delivery.isFinished() && !delivery.succeeded() && !failed.contains(delivery.neighborID)){
+				failed.add(delivery.neighborID);
+			}
+		}
+
+		// Remove the neighbors that could not be reached, which also aborts overdue deliveries
+		for(PeerId badNeighbor : failed){
+			topology.remove(badNeighbor);
+			connections.remove(badNeighbor);
+		}
+		return failed;
+	}
+
+	// The sendToAll method sends a frame to every current neighbor of this peer.
+	public List<PeerId> sendToAll(Frame frame){
+		return send(topology.getSnapshot().getAll(), frame);
+	}
+
+	/*
+	 * The Delivery class sends the round's frame to a single neighbor and records when it started
+	 * and how it ended.
+	 */
+	private class Delivery implements Runnable {
+
+		// Global variables
+		private PeerId neighborID; // The neighbor the frame is sent to
+		private Frame frame; // The frame being sent
+		private CountDownLatch round; // Counted down when the delivery finishes
+		private volatile long started; // Time the delivery began running in nanoseconds, 0 if queued
+		private volatile boolean finished; // Set once the send returned or failed
+		private volatile boolean succeeded; // Set once the frame was written
+
+		// Constructor method that takes in the neighbor, frame and the round it belongs to.
+		public Delivery(PeerId neighborID, Frame frame, CountDownLatch round){
+			this.neighborID = neighborID;
+			this.frame = frame;
+			this.round = round;
+		}
+
+		// Run method that sends the frame and counts down the round
+		public void run(){
+			started = System.nanoTime();
+			try{
+				connections.send(neighborID, frame);
+				succeeded = true;
+			}
+			catch(IOException e){ System.out.println(neighborID + ": " + e.getMessage()); }
+			finally{
+				finished = true;
+				round.countDown();
+			}
+		}
+
+		// The remaining method returns the milliseconds left until the delivery runs past its
+		// timeout at the provided time in nanoseconds, or the whole timeout while it is queued.
+		public long remaining(long now){
+			long start = started;
+			if(start == 0){
+				return sendTimeout;
+			}
+			return sendTimeout - TimeUnit.NANOSECONDS.toMillis(now - start);
+		}
+
+		// Getter methods for whether the delivery finished and its outcome
+		public boolean isFinished(){
+			return this.finished;
+		}
+
+		public boolean succeeded(){
+			return this.succeeded;
+		}
+
+	}
+
+}
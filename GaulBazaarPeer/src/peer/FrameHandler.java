@@ -0,0 +1,15 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+/*
+ * The FrameHandler interface is implemented by the BuyerServer and SellerServer to handle the
+ * frames a Transport delivers to their peer.
+ */
+public interface FrameHandler {
+
+	// Returns a handler for a frame received from the client at the other end of the connection
+	public Runnable getRequestHandler(Frame frame, ClientConnection client);
+
+}
@@ -0,0 +1,37 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+/*
+ * The ItemCatalog class maps the products of the Bazaar to the numeric item ids used in
+ * frames. Names are always returned as the same String constants, so that decoding a frame
+ * never creates a new String for an item.
+ */
+public class ItemCatalog {
+
+	// Products of the Bazaar, the index of a product is its item id
+	private static final String[] ITEMS = { "boar", "fish", "salt" };
+
+	// Constructor method that takes no parameters.
+	public ItemCatalog() {}
+
+	// The getItemId method returns the item id of a product name, or -1 if it isn't a product.
+	public static int getItemId(String item){
+		for(int i = 0; i < ITEMS.length; i++){
+			if(ITEMS[i].equals(item)){
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	// The getItemName method returns the product name of an item id, or null for an unknown id.
+	public static String getItemName(int itemId){
+		if(itemId < 0 || itemId >= ITEMS.length){
+			return null;
+		}
+		return ITEMS[itemId];
+	}
+
+}
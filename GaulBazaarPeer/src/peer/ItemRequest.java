@@ -6,207 +6,648 @@ package peer;
 // Import statements
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /*
- * The ItemRequest monitor controls synchronization of a buyer's request for a certain product
- * and stores responses to a request from seller's of the item being bought. The response time
- * of each seller's reply message is also stored so the average response time of each request
- * can be calculated. Sellers must wait until the buyer chooses which of them to purchase the 
- * product from. Each buyer has only one ItemRequest monitor that is modified for each new
- * request.
+ * The ItemRequest monitor controls synchronization of a buyer's requests for products and
+ * stores responses to each request from sellers of the item being bought. A buyer may have
+ * several requests in flight at once, up to its pipelining depth, and they are kept in a table
+ * keyed by the sequence number of the request's lookup. Seller replies carry that sequence
+ * number, so every reply is matched to its exact request. Each request has its own responses
+ * and its own winner decision. The latency of every reply, the time until the first reply and
+ * the time until the purchase of every request are recorded in the buyer's ResponseTimes,
+ * measured in nanoseconds and counted in histograms that don't grow with the number of
+ * requests. Seller offers are only recorded, no thread waits for the decision; once a request
+ * is decided the buyer collects it and sends every seller that made an offer a commit or
+ * decline message. A request is closed by the buyer's CompletionPolicy, either when enough
+ * offers arrived or when a timer started with the request reaches the deadline given by the
+ * RequestWindow. In the EXPANDING_RING SearchMode a request starts with a hopcount of 1 and
+ * every deadline that passes without enough offers hands the request back to the buyer, which
+ * sends the lookup again as a new ring with twice the hopcount and a new sequence number.
+ * Offers for every ring of a request count towards it, so a request that has offers only grows
+ * while the leases of their sellers outlast the next ring, and is decided with the offers it
+ * has otherwise. In the RANDOM_WALK SearchMode the monitor tells walkers that check back if
+ * their request is still open and counts the hops the walkers of every request took. The
+ * monitor also remembers the seller each item was last bought from in a small least recently
+ * used table. A request for such an item is first sent directly to that sticky seller, and only
+ * if the seller refuses or doesn't offer before the deadline is the request handed back to the
+ * buyer for a normal lookup. The monitor uses a ReentrantLock and Condition rather than
+ * synchronized methods so that a buyer running on a virtual thread releases its carrier thread
+ * while waiting. A buyer driven by events instead registers a collector, which is run on the
+ * timer whenever a request becomes collectable, and polls for the request without waiting.
  */
 public class ItemRequest {
 
 	// Global variables
-	private static String item; // Product currently being requested
-	private static Random rand; // Random object for determining seller to purchase from and which item is being requested
-	private static int buyer; // The buyer's peer index
-	private static long reqStart; // The System time at the issuance of a request
-	private static ArrayList<Long> resTimes; // List of response times for a given request
-	private static ArrayList<Double> avgTimes; // List of average response times from each request
-	private static Map<String, Boolean> responses; // List of seller peerIDs and a boolean indicating if they are chosen for the purchase
-	private static Map<String, Boolean> oldResponses; // List of responses to the previous request used for messages to sellers
-	private static String outputFile; // Output file path for this buyer
-	private static boolean active; // Indicates whether this ItemRequest is receiving replies from sellers
-
-	// Contructor method that takes in the buyer's peer index and output file path and initiates
-	// all global variables.
-	@SuppressWarnings("static-access")
-	public ItemRequest(int buyer, String outputFile) {
+	private static final int CLOSED_RINGS = 64; // Number of closed rings whose late replies are still measured
+	private String lastItem; // Product requested most recently
+	private Random rand; // Random object for determining seller to purchase from and which item is being requested
+	private int buyer; // The buyer's peer index
+	private int depth; // Largest number of requests in flight at once
+	private int hopcount; // Default hopcount of the buyer's lookups
+	private SearchMode searchMode; // How far the buyer's lookups travel
+	private int walkHopcount; // Number of hops a walker may take
+	private int walkCheckInterval; // Number of hops between a walker's checks with the buyer
+	private long leaseDuration; // Time in milliseconds sellers hold an offered item for the buyer
+	private Map<String, PeerId> winners; // Seller each item was last bought from, least recently used first
+	private ResponseTimes responseTimes; // Latencies of the replies, first replies and purchases of every request
+	private Map<Integer, PendingRequest> pending; // Open and undecided requests by sequence number
+	private Map<Integer, Long> closedRings; // Start of the most recently closed rings by sequence number
+	private ArrayDeque<PendingRequest> completed; // Decided requests or requests needing a lookup the buyer hasn't collected yet
+	private int outstanding; // Requests issued but not yet collected by the buyer
+	private String outputFile; // Output file path for this buyer
+	private boolean writeOutput; // Whether issued requests are written to the output file
+	private Clock clock; // Clock response times and deadlines are measured with
+	private Runnable collector; // Run on the timer when a request becomes collectable, null for a waiting buyer
+	private final ReentrantLock lock = new ReentrantLock(); // Lock guarding the monitor's state
+	private final Condition collectable = lock.newCondition(); // Signalled when a request is decided or needs a lookup
+	private final RequestWindow window; // Applies the buyer's CompletionPolicy
+	private final ScheduledExecutorService timer; // Closes requests at their deadline
+
+	// Contructor method that takes in the buyer's peer index, default hopcount, output file path
+	// and run parameters and initiates all global variables.
+	public ItemRequest(int buyer, int hopcount, String outputFile, PeerConfig config) {
 		this.buyer = buyer;
-		this.rand = new Random();
-		this.reqStart = 0;
-		this.resTimes = null;
-		this.item = "";
+		this.rand = config.newRandom(buyer, "ItemRequest");
+		this.lastItem = "";
+		this.depth = Math.max(1, config.pipelineDepth);
+		this.hopcount = Math.max(1, hopcount);
+		this.searchMode = config.searchMode;
+		this.walkHopcount = Math.max(1, config.walkHopcount);
+		this.walkCheckInterval = Math.max(1, config.walkCheckInterval);
+		this.leaseDuration = config.leaseDuration;
+		final int stickySellers = config.stickySellers;
+		this.winners = new LinkedHashMap<String, PeerId>(16, 0.75f, true){
+			private static final long serialVersionUID = 1L;
+			protected boolean removeEldestEntry(Map.Entry<String, PeerId> eldest){
+				return size() > stickySellers;
+			}
+		};
 		this.outputFile = outputFile;
-		this.active = false;
-		this.responses = null;
-		this.oldResponses = null;
-		this.avgTimes = new ArrayList<>();
+		this.writeOutput = config.writeOutput;
+		this.clock = config.clock;
+		this.collector = null;
+		this.responseTimes = config.responseTimes != null ? config.responseTimes : new ResponseTimes();
+		this.pending = new HashMap<>();
+		this.closedRings = new LinkedHashMap<Integer, Long>(){
+			private static final long serialVersionUID = 1L;
+			protected boolean removeEldestEntry(Map.Entry<Integer, Long> eldest){
+				return size() > CLOSED_RINGS;
+			}
+		};
+		this.completed = new ArrayDeque<>();
+		this.outstanding = 0;
+		this.window = new RequestWindow(config);
+		this.timer = config.scheduler != null ? config.scheduler : Executors.newSingleThreadScheduledExecutor();
 	}
-	
+
 	// The resetItem method picks a new item to request, it requires the new item to not be the same
-	// as the previous item that was requested. 
-	@SuppressWarnings("static-access")
-	public synchronized void resetItem(){
-		String nextItem = this.item;		
-		while(nextItem.equals(this.item)){
+	// as the previous item that was requested. Must be called while holding the lock.
+	private String resetItem(){
+		String nextItem = this.lastItem;
+		while(nextItem.equals(this.lastItem)){
 			switch(rand.nextInt(3)){
-			case 0 : this.item = "boar";
+			case 0 : nextItem = "boar";
 					 break;
-			case 1 : this.item = "fish";
+			case 1 : nextItem = "fish";
 				     break;
-			case 2 : this.item = "salt";
+			case 2 : nextItem = "salt";
 				     break;
 			}
 		}
+		this.lastItem = nextItem;
+		return nextItem;
 	}
-	
-	// The buy method takes in a product name and the peerID of the seller and adds that
-	// seller to the responses Map. The thread created by a reply message to the BuyerServer
-	// then waits until a seller is chosen for the purchase. After which it notifies the
-	// seller who sent that reply if they were chosen or not.
-	@SuppressWarnings("static-access")
-	public synchronized boolean buy(String item, String sellerID){
-		
-		// Check that the item being sold is the same as the item requested and that the
-		// ItemRequest is active. Return false otherwise.
-		if(this.item.equals(item) && this.active){
-			
-			// Add the seller to the response map, calculate response time and wait for a 
-			// purchase decision.
-			this.responses.put(sellerID, false);
-			this.resTimes.add(System.currentTimeMillis() - this.reqStart);
-			try{
-				wait();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-			
-			// After a purchase decision is made the response information is migrated to
-			// the oldResponses map, which is used for notifying the sellers of the decision.
-			// Also checks to make sure the oldResponse map exists.
-			if(this.oldResponses != null){
-				return this.oldResponses.get(sellerID);
+
+	// The offer method takes in the sequence number of a lookup, a product name, the PeerId of
+	// the seller and the remaining hops of the lookup when it reached the seller, and adds that
+	// seller to the responses of the matching request. Returns true if the offer was recorded,
+	// in which case the seller learns the decision once the request is decided, and false if the
+	// request is no longer open or the seller already made an offer for an earlier ring of it,
+	// and the offer should be declined.
+	public boolean offer(int seqNum, String item, PeerId sellerID, int hopcount){
+		lock.lock();
+		try{
+
+			// Check that a request with this sequence number is still open and that the item being
+			// sold is the same as the item requested. Return false otherwise.
+			PendingRequest request = this.pending.get(seqNum);
+			if(request != null && request.active && request.item.equals(item) && !request.responses.containsKey(sellerID)){
+
+				// Add the seller to the response map and record the reply's latency, the first
+				// reply's latency as well, the latency of the reply since the start of the ring it
+				// answered feeds the adaptive deadline
+				long resTime = this.clock.nanos() - request.reqStart;
+				request.responses.put(sellerID, false);
+				request.offerSeqNums.put(sellerID, seqNum);
+				this.responseTimes.getReplies().record(resTime);
+				if(request.firstResponse < 0){
+					request.firstResponse = resTime / 1000000;
+					this.responseTimes.getFirstReplies().record(resTime);
+				}
+				this.window.recordLatency(this.clock.millis() - request.ringStarts.get(seqNum));
+				if(this.searchMode == SearchMode.RANDOM_WALK){
+					request.walkHops += offerHops(hopcount);
+				}
+
+				// Decide the request if this reply completes it under the CompletionPolicy or if
+				// it is the sticky seller's offer, which is the only one a direct request gets
+				if(request.sticky != null || this.window.isComplete(request.responses.size())){
+					chooseWinner(request);
+				}
+				return true;
 			}
 			else{
+
+				// A reply to a ring that was closed already still tells the adaptive deadline how
+				// long the reply took
+				Long ringStart = this.closedRings.get(seqNum);
+				if(ringStart != null){
+					this.window.recordLatency(this.clock.millis() - ringStart);
+				}
 				return false;
 			}
 		}
-		else return false;
-	}
-	
-	// The chooseWinner method is used by the Buyer object to determine which of the sellers
-	// that replied to this request to purchase the product from. Returns the entire map of
-	// responses so that the Buyer object can print the results to a file.
-	@SuppressWarnings("static-access")
-	public synchronized Map<String, Boolean> chooseWinner(){
-		
-		// Initialize a new oldResponses map and deactivate this ItemRequest
-		this.oldResponses = new HashMap<>();
-		this.active = false;
-		
+		finally{
+			lock.unlock();
+		}
+	}
+
+	// The chooseWinner method closes a request and determines which of the sellers that replied
+	// to it to purchase the product from. The request is then handed to the buyer, which sends
+	// the decision to the sellers and prints it. Must be called while holding the lock.
+	private void chooseWinner(PendingRequest request){
+
+		// Deactivate the request and forget it so later replies are turned down
+		if(request.decided){
+			return;
+		}
+		request.active = false;
+		request.decided = true;
+		request.deadline.cancel(false);
+		for(int ringSeqNum : request.seqNums){
+			this.pending.remove(ringSeqNum);
+			this.closedRings.put(ringSeqNum, request.ringStarts.get(ringSeqNum));
+		}
+
 		// Check to see if any responses were made
-		if(!this.responses.isEmpty()){
-			
-			// Pick a random index of the winner
-			int winner = rand.nextInt(this.responses.keySet().size());
-			
-			// Iterate through the sellers that responded and mark the one that was chosen for
-			// the purchase, copy this information to the oldResponses map.
+		if(!request.responses.isEmpty()){
+
+			// Pick a random index of the winner and mark the seller that was chosen, who becomes
+			// the item's sticky seller
+			int winner = rand.nextInt(request.responses.size());
 			int count = 0;
-			for(String seller : this.responses.keySet()){
+			for(PeerId seller : request.responses.keySet()){
 				if(count == winner){
-					this.responses.put(seller, true);
-					this.oldResponses.put(seller, true);
+					request.responses.put(seller, true);
+					this.winners.put(request.item, seller);
+				}
+				count++;
+			}
+			request.direct = request.sticky != null;
+
+			// Record the time until the purchase was decided
+			this.responseTimes.getPurchases().record(this.clock.nanos() - request.reqStart);
+		}
+
+		// Wake the buyer
+		this.completed.add(request);
+		wake();
+	}
+
+	// The expire method is run by the timer at the deadline of a request's ring and decides the
+	// request if it is still open. A direct request the sticky seller didn't answer, and in the
+	// EXPANDING_RING SearchMode a request whose ring didn't receive enough offers and hasn't
+	// reached the default hopcount, is handed to the buyer for its next lookup instead as long as
+	// the offers it already has would still be held by their sellers once the next ring ends. The
+	// sticky seller answers every direct request, so its silence tells the adaptive deadline that
+	// its reply takes longer than the deadline. Other lookups may simply not reach a seller.
+	private void expire(int seqNum){
+		lock.lock();
+		try{
+			PendingRequest request = this.pending.get(seqNum);
+			if(request != null && !request.decided && seqNum == request.seqNum){
+				if(request.sticky != null && request.responses.isEmpty()){
+					this.window.recordTimeout(request.ringDeadline);
+					fallBack(request);
+				}
+				else if(this.searchMode == SearchMode.EXPANDING_RING && request.ttl < this.hopcount &&
+						!this.window.hasEnough(request.responses.size()) && outlastsRing(request)){
+					handBack(request);
 				}
 				else{
-					this.oldResponses.put(seller, false);
+					chooseWinner(request);
 				}
-				count++;
 			}
-			
-			// Calculate average response time to this request
-			double resTotal = 0.0;
-			for(int i = 0; i < this.resTimes.size(); i++){
-				resTotal += this.resTimes.get(i);
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+
+	// The outlastsRing method returns true if the leases of a request's offers outlast another
+	// ring of the request. The leases started after the request was issued, and the next ring's
+	// deadline and another deadline for the commit to reach the seller have to pass before they
+	// expire. A request without offers holds no leases. Must be called while holding the lock.
+	private boolean outlastsRing(PendingRequest request){
+		if(request.responses.isEmpty()){
+			return true;
+		}
+		long age = (this.clock.nanos() - request.reqStart) / 1000000;
+		return age + 2 * this.window.getDeadline() <= this.leaseDuration;
+	}
+
+	// The refuse method is used by the buyer when the seller of a direct request refused it
+	// because it sold out or switched products. The seller is forgotten as the item's sticky
+	// seller and the request is handed to the buyer for a normal lookup.
+	public void refuse(int seqNum){
+		lock.lock();
+		try{
+			PendingRequest request = this.pending.get(seqNum);
+			if(request != null && !request.decided && request.sticky != null && request.responses.isEmpty()){
+				request.deadline.cancel(false);
+				fallBack(request);
+			}
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+
+	// The fallBack method forgets the sticky seller of a direct request that wasn't answered and
+	// hands the request to the buyer for a normal lookup. Must be called while holding the lock.
+	private void fallBack(PendingRequest request){
+		if(request.sticky.equals(this.winners.get(request.item))){
+			this.winners.remove(request.item);
+		}
+		request.sticky = null;
+		request.rings = 0;
+		handBack(request);
+	}
+
+	// The handBack method wakes the buyer to send the next lookup of a request. Must be called
+	// while holding the lock.
+	private void handBack(PendingRequest request){
+		request.needsLookup = true;
+		this.completed.add(request);
+		wake();
+	}
+
+	// The wake method wakes a waiting buyer, or runs the collector of a buyer driven by events on
+	// the timer. Must be called while holding the lock.
+	private void wake(){
+		collectable.signalAll();
+		if(this.collector != null){
+			this.timer.execute(this.collector);
+		}
+	}
+
+	// Setter method for the collector run whenever a request becomes collectable
+	public void setCollector(Runnable collector){
+		lock.lock();
+		try{
+			this.collector = collector;
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+
+	// The check method is used by the buyer when a walker of one of its lookups checks back with
+	// the provided remaining hops. The walker's hops since it last checked back are added to its
+	// request. Returns true if the request is still open and the walker has hops left, in which
+	// case the buyer sends the walker on.
+	public boolean check(int seqNum, int hopcount){
+		lock.lock();
+		try{
+			PendingRequest request = this.pending.get(seqNum);
+			if(request == null){
+				return false;
 			}
-			double resAvg = resTotal/this.resTimes.size();
-			this.avgTimes.add(resAvg);
-			
-			// Wake all threads waiting in the buy method.
-			notifyAll();
-		}
-		
-		// Return a pointer to the response map to the Buyer object
-		return this.responses;
-	}
-	
-	
-	// Getter method for the ItemRequests current product
-	@SuppressWarnings("static-access")
-	public synchronized String getItem(){
-		return this.item;
-	}
-
-	// The newRequest method is used by the buyer to prepare the ItemRequest
-	// before a lookup is made.
-	@SuppressWarnings("static-access")
-	public synchronized String newRequest(){
-		
-		// Choose a new item
-		resetItem();
-		
-		// Print the new item request to the output file
-		String request = "Peer ("+ buyer +") " + this.item + " request: Issued";
+			request.walkHops += Math.min(this.walkCheckInterval, this.walkHopcount - hopcount);
+			request.walkChecks++;
+			return request.active && hopcount > 0;
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+
+	// The offerHops method returns the hops a walker took since it last checked back when it
+	// reached a seller with the provided remaining hops. Walkers check back whenever their
+	// remaining hops are a multiple of the check interval, and being sent on by the buyer uses
+	// up a hop as well.
+	private int offerHops(int hopcount){
+		int lastCheck = (hopcount + this.walkCheckInterval - 1) / this.walkCheckInterval * this.walkCheckInterval;
+		if(lastCheck >= this.walkHopcount){
+			return this.walkHopcount - hopcount + 1;
+		}
+		return lastCheck - hopcount + 1;
+	}
+
+	// The hasFreeSlot method returns true if the buyer may issue another request without going
+	// over its pipelining depth.
+	public boolean hasFreeSlot(){
+		lock.lock();
 		try{
-			FileWriter writer = new FileWriter(outputFile + "buyerOutput.txt", true);
-			writer.write(request);
-			writer.write(System.getProperty("line.separator"));
-			writer.close();
+			return this.outstanding < this.depth;
 		}
-		catch(IOException e){ e.printStackTrace(); }
-		
-		// Activate the ItemRequest, initialize the request start time, the response time
-		// array, and the seller response Map (this Map is reinitialized upon each new request).
-		// Returns the product name to the buyer for generating its lookup request.
-		this.active = true;
-		this.reqStart = System.currentTimeMillis();
-		this.resTimes = new ArrayList<>();
-		this.responses = new HashMap<>();
-		return this.item;
-	}
-	
-	// The printAverageResponseTime is used to print all the request average response times
-	// as well as an overall average response time for the buyer.
-	@SuppressWarnings("static-access")
-	public synchronized void printAverageResponseTime(){
-		
-		// Start total for the overall average response time
-		double overallAvg = 0.0;
+		finally{
+			lock.unlock();
+		}
+	}
+
+	// Getter method for the number of requests issued but not yet collected by the buyer
+	public int getOutstanding(){
+		lock.lock();
 		try{
-			// Create a FileWriter object for writing the response times
-			FileWriter writer = new FileWriter(outputFile + "buyerAvgResTimes.txt", true);
-			
-			// Iterate through the average response times, printing them out to the output file
-			for(Double avg : this.avgTimes){
-				overallAvg += avg;
-				writer.write(avg.toString());
-				writer.write(System.getProperty("line.separator"));
+			return this.outstanding;
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+
+	// The newRequest method is used by the buyer to open a request for the lookup with the
+	// provided sequence number before the lookup is made. Returns the request, which holds the
+	// product to look up and the hopcount of its first lookup.
+	public PendingRequest newRequest(int seqNum){
+		lock.lock();
+		try{
+
+			// Choose a new item
+			String item = resetItem();
+
+			// Print the new item request to the output file
+			if(this.writeOutput){
+				String request = "Peer ("+ buyer +") " + item + " request: Issued";
+				try{
+					FileWriter writer = new FileWriter(outputFile + "buyerOutput.txt", true);
+					writer.write(request);
+					writer.write(System.getProperty("line.separator"));
+					writer.close();
+				}
+				catch(IOException e){ e.printStackTrace(); }
+			}
+
+			// Add the open request to the table and start the timer of its first lookup, which
+			// goes directly to the item's sticky seller if it has one
+			PendingRequest pendingRequest = new PendingRequest(seqNum, item, firstHopcount(), this.clock.nanos());
+			pendingRequest.sticky = this.winners.get(item);
+			this.outstanding++;
+			startRing(pendingRequest, seqNum);
+			return pendingRequest;
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+
+	// The firstHopcount method returns the hopcount of the first lookup of a request under the
+	// buyer's SearchMode.
+	private int firstHopcount(){
+		if(this.searchMode == SearchMode.EXPANDING_RING){
+			return 1;
+		}
+		else if(this.searchMode == SearchMode.RANDOM_WALK){
+			return this.walkHopcount;
+		}
+		return this.hopcount;
+	}
+
+	// The nextLookup method is used by the buyer to send a request handed to it by
+	// awaitCollectable out again with the provided sequence number. A request the sticky seller
+	// didn't answer gets its first normal lookup, any other request a new ring with twice the
+	// hopcount, bounded by the default hopcount. Returns false if the request was decided in
+	// the meantime by a late offer, in which case no lookup should be made.
+	public boolean nextLookup(PendingRequest request, int seqNum){
+		lock.lock();
+		try{
+			request.needsLookup = false;
+			if(request.decided){
+				return false;
+			}
+			if(request.rings == 0){
+				request.ttl = firstHopcount();
+			}
+			else{
+				request.ttl = Math.min(this.hopcount, request.ttl * 2);
+			}
+			request.rings++;
+			startRing(request, seqNum);
+			return true;
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+
+	// The addLookups method is used by the buyer to add the provided number of lookup frames it
+	// sent for a request to the request's count.
+	public void addLookups(PendingRequest request, int sent){
+		lock.lock();
+		try{
+			request.lookups += sent;
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+
+	// The startRing method adds a ring of a request to the table under its sequence number and
+	// starts the timer that ends the ring at its deadline. Must be called while holding the lock.
+	private void startRing(PendingRequest request, int seqNum){
+		request.seqNum = seqNum;
+		request.seqNums.add(seqNum);
+		request.ringStarts.put(seqNum, this.clock.millis());
+		request.ringDeadline = this.window.getDeadline();
+		this.pending.put(seqNum, request);
+		final int current = seqNum;
+		request.deadline = this.timer.schedule(new Runnable(){
+			public void run(){
+				expire(current);
+			}
+		}, request.ringDeadline, TimeUnit.MILLISECONDS);
+	}
+
+	// The awaitCollectable method is used by the buyer to wait until one of its requests is
+	// decided or needs another lookup. Returns that request so that the buyer can notify the
+	// sellers and print the results to a file, or send its next lookup if needsLookup returns
+	// true.
+	public PendingRequest awaitCollectable() throws InterruptedException{
+		lock.lock();
+		try{
+			while(this.completed.isEmpty()){
+				collectable.await();
 			}
-			
-			// Calculate and write the overall average response time for the buyer
-			writer.write("Overall Response Time Average: " + overallAvg/this.avgTimes.size() + "ms");
-			writer.write(System.getProperty("line.separator"));
-			
+			return collect();
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+
+	// The pollCollectable method is used by a buyer driven by events to take one of its requests
+	// that is decided or needs another lookup without waiting. Returns null if there is none.
+	public PendingRequest pollCollectable(){
+		lock.lock();
+		try{
+			return this.completed.isEmpty() ? null : collect();
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+
+	// The collect method takes the next collectable request, a decided request is no longer
+	// outstanding. Must be called while holding the lock.
+	private PendingRequest collect(){
+		PendingRequest request = this.completed.poll();
+		if(!request.needsLookup){
+			this.outstanding--;
+		}
+		return request;
+	}
+
+	// The printResponseTimes method is used to print the percentiles of the buyer's reply, first
+	// reply and purchase latencies along with a snapshot of their histograms, which can be decoded
+	// and merged with the snapshots of other buyers.
+	public void printResponseTimes(){
+		try{
+			// Create a FileWriter object for writing the response times
+			FileWriter writer = new FileWriter(outputFile + "buyerResTimes.txt", true);
+
+			// Write a snapshot of the response times recorded so far
+			this.responseTimes.snapshot().write(writer);
+
 			// Close the FileWriter object
 			writer.close();
 		}
 		catch(IOException e){ e.printStackTrace(); }
 	}
 
+	/*
+	 * The PendingRequest class is a single request of the buyer. It holds the request's product,
+	 * the sellers that replied to it and whether they were chosen for the purchase, the time until
+	 * its first reply and the rings the request was sent out in. Its fields are guarded by the
+	 * ItemRequest monitor's lock.
+	 */
+	public static class PendingRequest {
+
+		// Global variables
+		private int seqNum; // Sequence number of the request's latest lookup
+		private List<Integer> seqNums; // Sequence numbers of every ring of the request
+		private int ttl; // Hopcount of the request's latest lookup
+		private int rings; // Number of lookups the request was sent out in
+		private int lookups; // Number of lookup frames the buyer sent for the request
+		private Map<Integer, Long> ringStarts; // The time at the issuance of every ring by sequence number
+		private long ringDeadline; // Milliseconds the latest ring stays open
+		private boolean needsLookup; // Indicates whether the buyer has to send out the next lookup
+		private PeerId sticky; // Seller a direct request was sent to, null once it is looked up normally
+		private boolean direct; // Indicates whether the request was decided by its sticky seller
+		private Map<PeerId, Integer> offerSeqNums; // Sequence number of the lookup each seller replied to
+		private int walkHops; // Hops taken by the request's walkers
+		private int walkChecks; // Number of times the request's walkers checked back
+		private String item; // Product being requested
+		private long reqStart; // The time in nanoseconds at the issuance of the request
+		private long firstResponse; // Time in milliseconds until the first reply, -1 without a reply
+		private Map<PeerId, Boolean> responses; // Sellers and a boolean indicating if they are chosen for the purchase
+		private boolean active; // Indicates whether the request is receiving replies from sellers
+		private boolean decided; // Indicates whether a seller was chosen for the request
+		private ScheduledFuture<?> deadline; // Timer task that decides the request at its deadline
+
+		// Constructor method that takes in the sequence number, product and first hopcount of a
+		// new request and the time in nanoseconds it is issued at, and activates it.
+		private PendingRequest(int seqNum, String item, int ttl, long now){
+			this.seqNum = seqNum;
+			this.seqNums = new ArrayList<>();
+			this.ttl = ttl;
+			this.rings = 1;
+			this.lookups = 0;
+			this.needsLookup = false;
+			this.sticky = null;
+			this.direct = false;
+			this.offerSeqNums = new HashMap<>();
+			this.ringStarts = new HashMap<>();
+			this.walkHops = 0;
+			this.walkChecks = 0;
+			this.item = item;
+			this.reqStart = now;
+			this.firstResponse = -1;
+			this.responses = new LinkedHashMap<>();
+			this.active = true;
+			this.decided = false;
+		}
+
+		// Getter methods for the request's latest sequence number and hopcount, its number of
+		// rings and the lookup frames sent for them, whether it needs another lookup, its sticky
+		// seller, whether it was decided by that seller, its walkers' hops and checks, the time to
+		// its first offer, the sequence number a seller replied to, its product and decided
+		// responses
+		public int getSeqNum(){
+			return this.seqNum;
+		}
+
+		public int getTtl(){
+			return this.ttl;
+		}
+
+		public int getRings(){
+			return this.rings;
+		}
+
+		public int getLookups(){
+			return this.lookups;
+		}
+
+		public boolean needsLookup(){
+			return this.needsLookup;
+		}
+
+		public PeerId getSticky(){
+			return this.sticky;
+		}
+
+		public boolean isDirect(){
+			return this.direct;
+		}
+
+		public int getWalkHops(){
+			return this.walkHops;
+		}
+
+		public int getWalkChecks(){
+			return this.walkChecks;
+		}
+
+		public long getFirstResponseTime(){
+			return this.firstResponse;
+		}
+
+		public int getOfferSeqNum(PeerId sellerID){
+			return this.offerSeqNums.get(sellerID);
+		}
+
+		public String getItem(){
+			return this.item;
+		}
+
+		public Map<PeerId, Boolean> getResponses(){
+			return this.responses;
+		}
+
+	}
+
 }
@@ -6,36 +6,63 @@ package peer;
 // Import statements
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 /*
  * The ItemStore monitor is used by a seller to synchronously track its inventory and
- * sell products to buyers. It places products in reserve for each reply sent to a 
- * buyer's lookup, and upon the buy response, either removes that product from its
+ * sell products to buyers. It places products in reserve for each offer sent to a 
+ * buyer's lookup, and upon the buyer's decision, either removes that product from its
  * inventory or marks it as available again. This allows the seller to not accidentally
- * sell one buyer's product to another buyer or over-sell its inventory.
+ * sell one buyer's product to another buyer or over-sell its inventory. Every reservation
+ * is identified by the buyer's peer index and the sequence number of the buyer's lookup,
+ * so a decision settles exactly the reservation made for that lookup. Reservations are leases
+ * with an id and an expiry time; a TimerWheel hands back leases whose buyer never decided and
+ * they are made available again in bulk. Counters track how many leases were committed,
+ * released by a decline and expired.
  */
-public class ItemStore {
+public class ItemStore implements TimerWheel.Listener {
 	
 	// Global variables
-	private static int seller; // The seller's peer index
-	private static String item; // The product currently being sold
-	private static int available; // The remaining product that is available
-	private static int reserved; // The product that is reserved for buyer's buy responses
-	private static Random rand; // A Random object for determining g which product is to be sold
-	private static String outputFile; // An output file path
+	private int seller; // The seller's peer index
+	private String item; // The product currently being sold
+	private int available; // The remaining product that is available
+	private int reserved; // The product that is reserved for buyer's buy responses
+	private Random rand; // A Random object for determining g which product is to be sold
+	private String outputFile; // An output file path
+	private boolean writeOutput; // Whether sales are written to the output file
+	private Clock clock; // Clock the lease expiry times are measured with
+	private Map<Long, Long> reservations; // Lease ids of open reservations by buyer and lookup sequence number
+	private Map<Long, Long> leases; // Buyer and lookup sequence number of open reservations by lease id
+	private long nextLeaseId; // Id of the next lease
+	private long leaseDuration; // Time in milliseconds before an undecided lease expires
+	private TimerWheel leaseTimer; // Reclaims expired leases
+	private long committedLeases; // Number of leases settled by a purchase
+	private long releasedLeases; // Number of leases released by a decline
+	private long expiredLeases; // Number of leases reclaimed after expiring
 	
-	// Constructor method that is provided with a seller peer index and output file from the Seller
-	// object that creates this ItemStore. This also initializes all global variables and calls the
-	// resetItem method to select a new item and amount to be sold.
-	@SuppressWarnings("static-access")
-	public ItemStore(int seller, String outputFile){
+	// Constructor method that is provided with a seller peer index, output file and run parameters
+	// from the Seller object that creates this ItemStore. This also initializes all global variables,
+	// starts the lease timer and calls the resetItem method to select a new item and amount to be sold.
+	public ItemStore(int seller, String outputFile, PeerConfig config){
 		this.seller = seller;
 		this.item = "";
 		this.available = 0;
 		this.reserved = 0;
-		this.rand = new Random();
+		this.rand = config.newRandom(seller, "ItemStore");
 		this.outputFile = outputFile;
+		this.writeOutput = config.writeOutput;
+		this.clock = config.clock;
+		this.reservations = new HashMap<>();
+		this.leases = new HashMap<>();
+		this.nextLeaseId = 0;
+		this.leaseDuration = config.leaseDuration;
+		this.committedLeases = 0;
+		this.releasedLeases = 0;
+		this.expiredLeases = 0;
+		this.leaseTimer = new TimerWheel(this, config.leaseTick, 64, config.scheduler, config.clock);
 		resetItem();
 	}
 	
@@ -43,7 +70,6 @@ public class ItemStore {
 	// the amount of available inventory for that product. It ensures that the item is chosen randomly
 	// and is not the same item that was sold previously. It also ensures the amount of the item 
 	// available is randomly chosen and not zero.
-	@SuppressWarnings("static-access")
 	public synchronized void resetItem(){
 		String nextItem = this.item;		
 		while(nextItem.equals(this.item)){
@@ -63,11 +89,16 @@ public class ItemStore {
 	
 	// The reserve product method is called by a SellerServer thread that is responding to a lookup 
 	// request for an item that is sold at this ItemStore. The method reduces the available item by
-	// one and adds one to the reserved items. The method returns true if there are available items
-	// and false if otherwise.
-	@SuppressWarnings("static-access")
-	public synchronized boolean reserveProduct(){
-		if(this.available > 0){
+	// one and adds one to the reserved items under a new lease for the buyer and lookup sequence
+	// number that expires after the lease duration. The method returns true if there are available
+	// items and false if otherwise or if that lookup already holds a reservation.
+	public synchronized boolean reserveProduct(int buyer, int seqNum){
+		long key = reservationKey(buyer, seqNum);
+		if(this.available > 0 && !this.reservations.containsKey(key)){
+			long leaseId = this.nextLeaseId++;
+			this.reservations.put(key, leaseId);
+			this.leases.put(leaseId, key);
+			this.leaseTimer.schedule(leaseId, this.clock.millis() + this.leaseDuration);
 			this.available--;
 			this.reserved++;
 			return true;
@@ -76,29 +107,33 @@ public class ItemStore {
 	}
 	
 	// The collectReservation method is called by a SellerServer thread in response to a buyer's
-	// buy decision. If the buyer bought this seller's product this method prints the results
+	// commit or decline message. If the buyer bought this seller's product this method prints the results
 	// of the sale to an output file and removes an item from the reserved items. If this totally
 	// depletes the store of all its items, this method calls the resetItem method to re-stock the 
 	// ItemStore with new items. If the buyer did not buy the product and item is moved from reserved
 	// and added to available.
-	@SuppressWarnings("static-access")
-	public synchronized boolean collectReservation(boolean indicator, int buyer){
+	public synchronized boolean collectReservation(boolean indicator, int buyer, int seqNum){
 		
-		// Check that an item is in fact reserved
-		if(this.reserved > 0){
+		// Check that an item is in fact reserved for this buyer's lookup and end its lease
+		Long leaseId = this.reservations.remove(reservationKey(buyer, seqNum));
+		if(leaseId != null){
+			this.leases.remove(leaseId);
 			
 			// Check if this ItemStore's product was purchased
 			if(indicator){
 				
 				// Remove the product from reserved items and write the sale result to the output file
 				this.reserved--;
-				try{
-					FileWriter writer = new FileWriter(outputFile, true);
-					writer.write("Peer (" + seller + ") sold " + item + " to Peer (" + buyer + "), remaining inventory: " + (available + reserved));
-					writer.write(System.getProperty("line.separator"));
-					writer.close();
+				this.committedLeases++;
+				if(this.writeOutput){
+					try{
+						FileWriter writer = new FileWriter(outputFile, true);
+						writer.write("Peer (" + seller + ") sold " + item + " to Peer (" + buyer + "), remaining inventory: " + (available + reserved));
+						writer.write(System.getProperty("line.separator"));
+						writer.close();
+					}
+					catch(IOException e){ e.printStackTrace(); }
 				}
-				catch(IOException e){ e.printStackTrace(); }
 				
 				// If no more inventory left, re-stock the ItemStore with new product
 				if(this.available == 0 && this.reserved == 0){
@@ -110,14 +145,61 @@ public class ItemStore {
 				// If this ItemStore's product wasn't purchased, make that product available again
 				this.reserved--;
 				this.available++;
+				this.releasedLeases++;
 			}
 			return true;
 		}
 		else return false;
 	}
 	
+	// The expired method is called by the lease timer with the ids of leases whose expiry time
+	// has passed. Leases that are still open are ended and their product is made available again,
+	// leases that were settled in the meantime are ignored. The lease counters are written to the
+	// output file whenever leases expire.
+	public synchronized void expired(List<Long> ids){
+		int reclaimed = 0;
+		for(Long leaseId : ids){
+			Long key = this.leases.remove(leaseId);
+			if(key != null){
+				this.reservations.remove(key);
+				this.reserved--;
+				this.available++;
+				this.expiredLeases++;
+				reclaimed++;
+			}
+		}
+		if(reclaimed > 0 && this.writeOutput){
+			try{
+				FileWriter writer = new FileWriter(outputFile, true);
+				writer.write("Peer (" + seller + ") reclaimed " + reclaimed + " expired reservations, leases committed: " +
+						committedLeases + ", released: " + releasedLeases + ", expired: " + expiredLeases);
+				writer.write(System.getProperty("line.separator"));
+				writer.close();
+			}
+			catch(IOException e){ e.printStackTrace(); }
+		}
+	}
+	
+	// Getter methods for the lease counters
+	public synchronized long getCommittedLeases(){
+		return this.committedLeases;
+	}
+	
+	public synchronized long getReleasedLeases(){
+		return this.releasedLeases;
+	}
+	
+	public synchronized long getExpiredLeases(){
+		return this.expiredLeases;
+	}
+	
+	// The reservationKey method combines a buyer's peer index and lookup sequence number into
+	// the key of a reservation.
+	private static long reservationKey(int buyer, int seqNum){
+		return ((long) buyer << 32) | (seqNum & 0xFFFFFFFFL);
+	}
+	
 	// Getter method for returning this ItemStore's current product
-	@SuppressWarnings("static-access")
 	public synchronized String getItem(){
 		return this.item;
 	}
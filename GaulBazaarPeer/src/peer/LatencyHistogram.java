@@ -0,0 +1,186 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+// Import statements
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * The LatencyHistogram class counts latencies in nanoseconds in a fixed number of logarithmic
+ * buckets, so that it takes the same memory however many latencies are recorded and still gives
+ * the percentiles of their tail. Latencies are counted in units of 1024ns. Every power of two of
+ * units is split into 16 buckets of equal width, apart from the first 32 units which get a bucket
+ * each, so a latency is known to within about 6% of its value up to 2^42ns, about 73 minutes.
+ * Longer latencies are counted in the last bucket, the maximum is kept exactly. Recording only
+ * increments atomic counters, so any number of threads may record into the same histogram without
+ * a lock. Histograms merge by adding up their buckets, which is how the histograms of several
+ * buyers or partitions are combined, and encode into a line of text they can be decoded from.
+ */
+public class LatencyHistogram {
+
+	// Global variables
+	private static final int UNIT_MAGNITUDE = 10; // Power of two of nanoseconds in a unit
+	private static final int SUB_BUCKET_BITS = 5; // Power of two of buckets the first units get
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // Buckets of a single unit each
+	private static final int HALF_BUCKETS = SUB_BUCKETS / 2; // Buckets every further power of two is split into
+	private static final long MAX_UNITS = (1L << 32) - 1; // Largest number of units told apart
+	private static final int BUCKETS = bucketOf(MAX_UNITS) + 1; // Number of buckets of every histogram
+	private AtomicLongArray counts; // Latencies counted in every bucket
+	private AtomicLong count; // Number of latencies recorded
+	private AtomicLong total; // Sum of the latencies recorded in nanoseconds
+	private AtomicLong max; // Largest latency recorded in nanoseconds
+
+	// Constructor method that creates an empty histogram.
+	public LatencyHistogram() {
+		this.counts = new AtomicLongArray(BUCKETS);
+		this.count = new AtomicLong();
+		this.total = new AtomicLong();
+		this.max = new AtomicLong();
+	}
+
+	// The record method counts a latency in nanoseconds, negative latencies count as 0.
+	public void record(long nanos){
+		nanos = Math.max(0, nanos);
+		counts.incrementAndGet(bucketOf(nanos >>> UNIT_MAGNITUDE));
+		count.incrementAndGet();
+		total.addAndGet(nanos);
+		long largest = max.get();
+		while(nanos > largest && !max.compareAndSet(largest, nanos)){
+			largest = max.get();
+		}
+	}
+
+	// The merge method adds the latencies counted by the provided histogram to this histogram.
+	public void merge(LatencyHistogram other){
+		for(int i = 0; i < BUCKETS; i++){
+			long counted = other.counts.get(i);
+			if(counted > 0){
+				counts.addAndGet(i, counted);
+			}
+		}
+		count.addAndGet(other.count.get());
+		total.addAndGet(other.total.get());
+		long largest = max.get();
+		long otherMax = other.max.get();
+		while(otherMax > largest && !max.compareAndSet(largest, otherMax)){
+			largest = max.get();
+		}
+	}
+
+	// The snapshot method returns a copy of this histogram that doesn't change when more latencies
+	// are recorded. The copy is taken while latencies may still be recorded, so it may hold a
+	// latency in its count before it is in its buckets.
+	public LatencyHistogram snapshot(){
+		LatencyHistogram copy = new LatencyHistogram();
+		copy.merge(this);
+		return copy;
+	}
+
+	// Getter methods for the number of latencies recorded, their mean and their maximum in
+	// nanoseconds
+	public long getCount(){
+		return this.count.get();
+	}
+
+	public long getMean(){
+		long recorded = count.get();
+		return recorded == 0 ? 0 : total.get() / recorded;
+	}
+
+	public long getMax(){
+		return this.max.get();
+	}
+
+	// The getPercentile method returns the latency in nanoseconds that the provided percentage of
+	// the recorded latencies are at or below, as the upper end of the bucket it is counted in but
+	// no more than the maximum. Returns 0 if nothing was recorded.
+	public long getPercentile(double percentile){
+		long recorded = 0;
+		for(int i = 0; i < BUCKETS; i++){
+			recorded += counts.get(i);
+		}
+		if(recorded == 0){
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(Math.min(100.0, percentile) / 100.0 * recorded));
+		long seen = 0;
+		for(int i = 0; i < BUCKETS; i++){
+			seen += counts.get(i);
+			if(seen >= rank){
+				return Math.min(highestOf(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	// The encode method returns the histogram as a line of text: the number of latencies recorded,
+	// their sum and maximum followed by the bucket and count of every bucket that isn't empty.
+	public String encode(){
+		StringBuilder line = new StringBuilder();
+		line.append(count.get()).append(' ').append(total.get()).append(' ').append(max.get());
+		for(int i = 0; i < BUCKETS; i++){
+			long counted = counts.get(i);
+			if(counted > 0){
+				line.append(' ').append(i).append(':').append(counted);
+			}
+		}
+		return line.toString();
+	}
+
+	// The decode method returns the histogram encoded in the provided line of text. Throws an
+	// exception if the line isn't an encoded histogram.
+	public static LatencyHistogram decode(String line){
+		String[] fields = line.trim().split(" ");
+		if(fields.length < 3){
+			throw new IllegalArgumentException("Not an encoded histogram: " + line);
+		}
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.count.set(Long.parseLong(fields[0]));
+		histogram.total.set(Long.parseLong(fields[1]));
+		histogram.max.set(Long.parseLong(fields[2]));
+		for(int i = 3; i < fields.length; i++){
+			int colon = fields[i].indexOf(':');
+			histogram.counts.addAndGet(Integer.parseInt(fields[i].substring(0, colon)), Long.parseLong(fields[i].substring(colon + 1)));
+		}
+		return histogram;
+	}
+
+	// The bucketOf method returns the bucket a latency of the provided number of units is counted
+	// in, latencies too long to tell apart are counted in the last bucket.
+	private static int bucketOf(long units){
+		units = Math.min(units, MAX_UNITS);
+		if(units < SUB_BUCKETS){
+			return (int) units;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(units) - (SUB_BUCKET_BITS - 1);
+		return shift * HALF_BUCKETS + (int) (units >>> shift);
+	}
+
+	// The highestOf method returns the longest latency in nanoseconds counted in the provided
+	// bucket.
+	private static long highestOf(int bucket){
+		if(bucket < SUB_BUCKETS){
+			return ((bucket + 1L) << UNIT_MAGNITUDE) - 1;
+		}
+		int shift = bucket / HALF_BUCKETS - 1;
+		long units = bucket - shift * HALF_BUCKETS;
+		return (((units + 1) << shift) << UNIT_MAGNITUDE) - 1;
+	}
+
+	// Returns the number of latencies recorded and their mean, median, 90th, 99th and 99.9th
+	// percentile and maximum in milliseconds
+	@Override
+	public String toString(){
+		return "n=" + getCount() + ", mean=" + millis(getMean()) + ", p50=" + millis(getPercentile(50)) +
+				", p90=" + millis(getPercentile(90)) + ", p99=" + millis(getPercentile(99)) +
+				", p99.9=" + millis(getPercentile(99.9)) + ", max=" + millis(getMax());
+	}
+
+	// The millis method formats a latency in nanoseconds as milliseconds.
+	private static String millis(long nanos){
+		return String.format("%.3fms", nanos / 1000000.0);
+	}
+
+}
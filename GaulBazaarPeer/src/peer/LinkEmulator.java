@@ -0,0 +1,143 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+// Import statements
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * The LinkEmulator class is a Transport that emulates wide-area network conditions on top of
+ * another Transport, so that lookups, forwards, replies and adjacency broadcasts of a peer all
+ * cross links with realistic delay even over loopback or in a simulation. The LinkModel gives
+ * every link from this peer its LinkProfile. A frame is lost with the link's loss probability,
+ * otherwise it waits until the link finished transmitting the frames before it at the link's
+ * bandwidth, takes its own transmission time and is then delayed by a delay drawn from the
+ * link's distribution. Frames are handed to the other Transport by a timer once their delay
+ * passed, so no thread sleeps and sending never blocks. A frame the other Transport fails to
+ * deliver after its delay is lost like a dropped one.
+ */
+public class LinkEmulator implements Transport {
+
+	// Global variables
+	private PeerId peerID; // The peer sending through this emulator
+	private Transport connections; // Carries the frames once their delay passed
+	private LinkModel model; // Conditions of every link
+	private Map<PeerId, Link> links; // State of the links used so far by destination
+	private Random rand; // Draws losses and delays
+	private Clock clock; // Clock the delays are measured with
+	private ScheduledExecutorService timer; // Hands the delayed frames to the other Transport
+	private AtomicLong delayed; // Frames delivered after their delay
+	private AtomicLong dropped; // Frames lost on a link
+
+	// Constructor method that takes in the sending peer, the Transport that carries its frames
+	// and the PeerConfig that provides the LinkModel, the scheduler, the clock and the seed.
+	public LinkEmulator(PeerId peerID, Transport connections, PeerConfig config) {
+		this.peerID = peerID;
+		this.connections = connections;
+		this.model = config.linkModel;
+		this.links = new HashMap<>();
+		this.rand = config.newRandom(peerID.getIndex(), "LinkEmulator");
+		this.clock = config.clock;
+		this.timer = config.scheduler != null ? config.scheduler : Executors.newSingleThreadScheduledExecutor(new ThreadFactory(){
+			public Thread newThread(Runnable task){
+				Thread thread = new Thread(task, "LinkEmulator");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.delayed = new AtomicLong();
+		this.dropped = new AtomicLong();
+	}
+
+	// Sends a frame over the emulated link to a peer, the frame is either dropped or handed to
+	// the other Transport once the link's delay passed
+	public void send(final PeerId destination, final Frame frame) throws IOException{
+		long now = clock.millis();
+		long wait;
+		synchronized(this){
+			Link link = links.get(destination);
+			if(link == null){
+				link = new Link(model.getProfile(peerID, destination), now);
+				links.put(destination, link);
+			}
+			if(link.profile.isLost(rand)){
+				dropped.incrementAndGet();
+				return;
+			}
+
+			// Queue the frame behind the frames the link is still transmitting and add its delay
+			double departure = Math.max(now, link.busyUntil) + link.profile.transmissionTime(FrameCodec.encodedLength(frame));
+			link.busyUntil = departure;
+			wait = Math.round(departure + link.profile.sampleDelay(rand) - now);
+		}
+		timer.schedule(new Runnable(){
+			public void run(){
+				try{
+					connections.send(destination, frame);
+					delayed.incrementAndGet();
+				}
+				catch(IOException e){
+					dropped.incrementAndGet();
+					System.out.println(destination + ": " + e.getMessage());
+				}
+			}
+		}, wait, TimeUnit.MILLISECONDS);
+	}
+
+	// Forgets the link to a peer and removes it from the other Transport
+	public void remove(PeerId destination){
+		synchronized(this){
+			links.remove(destination);
+		}
+		connections.remove(destination);
+	}
+
+	// Frames this peer receives arrive over the links of the peers sending them, so they are
+	// served by the other Transport unchanged
+	public void serve(PeerId served, FrameHandler handler, PeerConfig config) throws IOException{
+		connections.serve(served, handler, config);
+	}
+
+	// Getter methods for the frames delivered after their delay and the frames lost
+	public long getDelayed(){
+		return this.delayed.get();
+	}
+
+	public long getDropped(){
+		return this.dropped.get();
+	}
+
+	// Returns the emulator's counters
+	@Override
+	public String toString(){
+		return "Link emulator: " + delayed.get() + " frames delayed, " + dropped.get() + " dropped";
+	}
+
+	/*
+	 * The Link class is the state of the link to a single destination: its profile and the time
+	 * the link finishes transmitting the frames queued on it.
+	 */
+	private static class Link {
+
+		// Global variables
+		private LinkProfile profile; // Conditions of the link
+		private double busyUntil; // Time in milliseconds the link is done transmitting
+
+		// Constructor method that takes in the link's profile and the current time.
+		public Link(LinkProfile profile, long now){
+			this.profile = profile;
+			this.busyUntil = now;
+		}
+
+	}
+
+}
@@ -0,0 +1,18 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+/*
+ * The LinkModel interface describes the emulated network conditions of every link of the overlay.
+ * A LinkEmulator asks it for the LinkProfile of each link its peer sends over, so conditions can
+ * differ per topology edge, for example by the region of the two peers. A LinkProfile is itself
+ * a LinkModel that gives every link the same conditions.
+ */
+public interface LinkModel {
+
+	// The getProfile method returns the conditions of the link from the source peer to the
+	// destination peer.
+	public LinkProfile getProfile(PeerId source, PeerId destination);
+
+}
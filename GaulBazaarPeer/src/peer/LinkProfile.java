@@ -0,0 +1,74 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+// Import statements
+import java.util.Random;
+
+/*
+ * The LinkProfile class holds the emulated conditions of a link: its delay in milliseconds, the
+ * jitter of that delay and the DelayDistribution the jitter is drawn from, its bandwidth in bytes
+ * per second and the probability that a frame sent over it is lost. A bandwidth of 0 leaves the
+ * link's bandwidth unlimited. LinkProfiles are immutable.
+ */
+public class LinkProfile implements LinkModel {
+
+	// Global variables
+	private static final double PARETO_SHAPE = 3.0; // Shape of the PARETO distribution's tail
+	private final double delay; // Delay of a frame in milliseconds
+	private final double jitter; // Variation of the delay in milliseconds
+	private final DelayDistribution distribution; // How the jitter is drawn
+	private final long bandwidth; // Bytes per second the link carries, 0 for no limit
+	private final double loss; // Probability that a frame is lost
+
+	// Constructor method that takes in the delay and jitter in milliseconds, the distribution of
+	// the jitter, the bandwidth in bytes per second and the loss probability.
+	public LinkProfile(double delay, double jitter, DelayDistribution distribution, long bandwidth, double loss) {
+		this.delay = Math.max(0, delay);
+		this.jitter = Math.max(0, jitter);
+		this.distribution = distribution;
+		this.bandwidth = Math.max(0, bandwidth);
+		this.loss = Math.min(1.0, Math.max(0.0, loss));
+	}
+
+	// Every link has this profile's conditions
+	public LinkProfile getProfile(PeerId source, PeerId destination){
+		return this;
+	}
+
+	// The sampleDelay method draws the delay in milliseconds of a frame sent over the link.
+	public double sampleDelay(Random rand){
+		double sampled = delay;
+		if(jitter > 0){
+			switch(distribution){
+			case UNIFORM : sampled += (2 * rand.nextDouble() - 1) * jitter;
+						   break;
+			case NORMAL : sampled += rand.nextGaussian() * jitter;
+						  break;
+			case PARETO : sampled += jitter * (Math.pow(1 - rand.nextDouble(), -1 / PARETO_SHAPE) - 1);
+						  break;
+			}
+		}
+		return Math.max(0, sampled);
+	}
+
+	// The transmissionTime method returns the time in milliseconds the link takes to put the
+	// provided number of bytes on the wire.
+	public double transmissionTime(int bytes){
+		return bandwidth == 0 ? 0 : bytes * 1000.0 / bandwidth;
+	}
+
+	// The isLost method draws whether a frame sent over the link is lost.
+	public boolean isLost(Random rand){
+		return loss > 0 && rand.nextDouble() < loss;
+	}
+
+	// Returns the profile in a readable form
+	@Override
+	public String toString(){
+		return delay + "ms +/- " + jitter + "ms " + distribution + ", " + (bandwidth == 0 ? "unlimited" : bandwidth + " B/s") +
+				", " + loss * 100 + "% loss";
+	}
+
+}
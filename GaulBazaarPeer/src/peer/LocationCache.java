@@ -0,0 +1,162 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+// Import statements
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * The LocationCache class maps item ids to the sellers that recently offered them, as learned
+ * from ADVERT frames passing back along the path of a lookup. A peer with a fresh entry for a
+ * lookup's item steers the lookup to those sellers instead of flooding it. Entries expire after
+ * a time to live, every item keeps only its most recent sellers and only the most recently used
+ * items are kept, so the cache stays small and its hints stay close to the sellers' stock. Hits,
+ * misses and evictions are counted so that the hops saved by the cache can be measured.
+ */
+public class LocationCache {
+
+	// Global variables
+	private static final int SELLERS_PER_ITEM = 4; // Sellers kept for each item
+	private int capacity; // Number of items kept
+	private long ttl; // Time in milliseconds an entry stays fresh
+	private Clock clock; // Clock the entries' expiry times are measured with
+	private Map<Integer, List<Location>> locations; // Recent sellers of every cached item, least recently used item first
+	private AtomicLong hits; // Lookups that were steered to a cached seller
+	private AtomicLong misses; // Lookups without a fresh entry for their item
+	private AtomicLong evictions; // Entries that expired or were pushed out
+
+	// Constructor method that takes in the number of items and the time to live of the entries
+	// from the PeerConfig. A cache with room for no items never hits.
+	public LocationCache(PeerConfig config) {
+		this.capacity = config.locationCacheSize;
+		this.ttl = config.locationCacheTtl;
+		this.clock = config.clock;
+		this.hits = new AtomicLong();
+		this.misses = new AtomicLong();
+		this.evictions = new AtomicLong();
+		this.locations = new LinkedHashMap<Integer, List<Location>>(16, 0.75f, true){
+			private static final long serialVersionUID = 1L;
+			protected boolean removeEldestEntry(Map.Entry<Integer, List<Location>> eldest){
+				if(size() > capacity){
+					evictions.addAndGet(eldest.getValue().size());
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	// The learn method records that the provided seller offered the item with the provided id.
+	public synchronized void learn(int item, PeerId sellerID){
+		if(capacity <= 0){
+			return;
+		}
+		List<Location> sellers = locations.get(item);
+		if(sellers == null){
+			sellers = new ArrayList<>();
+			locations.put(item, sellers);
+		}
+		Iterator<Location> entries = sellers.iterator();
+		while(entries.hasNext()){
+			if(entries.next().sellerID.equals(sellerID)){
+				entries.remove();
+			}
+		}
+		sellers.add(new Location(sellerID, clock.millis() + ttl));
+		if(sellers.size() > SELLERS_PER_ITEM){
+			sellers.remove(0);
+			evictions.incrementAndGet();
+		}
+	}
+
+	// The lookup method returns the fresh sellers of the item with the provided id and counts a
+	// hit, or an empty array and counts a miss. Expired entries are evicted on the way.
+	public synchronized PeerId[] lookup(int item){
+		List<Location> sellers = locations.get(item);
+		List<PeerId> fresh = new ArrayList<>();
+		if(sellers != null){
+			long now = clock.millis();
+			Iterator<Location> entries = sellers.iterator();
+			while(entries.hasNext()){
+				Location entry = entries.next();
+				if(entry.expiresAt <= now){
+					entries.remove();
+					evictions.incrementAndGet();
+				}
+				else{
+					fresh.add(entry.sellerID);
+				}
+			}
+			if(sellers.isEmpty()){
+				locations.remove(item);
+			}
+		}
+		if(fresh.isEmpty()){
+			misses.incrementAndGet();
+		}
+		else{
+			hits.incrementAndGet();
+		}
+		return fresh.toArray(new PeerId[fresh.size()]);
+	}
+
+	// The forget method removes a seller that could not be reached from every item.
+	public synchronized void forget(PeerId sellerID){
+		Iterator<List<Location>> items = locations.values().iterator();
+		while(items.hasNext()){
+			List<Location> sellers = items.next();
+			Iterator<Location> entries = sellers.iterator();
+			while(entries.hasNext()){
+				if(entries.next().sellerID.equals(sellerID)){
+					entries.remove();
+					evictions.incrementAndGet();
+				}
+			}
+			if(sellers.isEmpty()){
+				items.remove();
+			}
+		}
+	}
+
+	// Getter methods for the hit, miss and eviction counters
+	public long getHits(){
+		return this.hits.get();
+	}
+
+	public long getMisses(){
+		return this.misses.get();
+	}
+
+	public long getEvictions(){
+		return this.evictions.get();
+	}
+
+	// The toString method returns the counters of the cache.
+	public String toString(){
+		return "Location cache: " + getHits() + " hits, " + getMisses() + " misses, " + getEvictions() + " evictions";
+	}
+
+	/*
+	 * The Location class is a seller of an item together with the time its entry expires.
+	 */
+	private static class Location {
+
+		// Global variables
+		private PeerId sellerID; // The seller that offered the item
+		private long expiresAt; // System time in milliseconds the entry expires at
+
+		// Constructor method that takes in the seller and the expiry time of the entry.
+		public Location(PeerId sellerID, long expiresAt){
+			this.sellerID = sellerID;
+			this.expiresAt = expiresAt;
+		}
+
+	}
+
+}
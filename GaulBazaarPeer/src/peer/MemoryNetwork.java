@@ -0,0 +1,119 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+// Import statements
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * The MemoryNetwork class connects peers that are hosted in the same process, so that a single
+ * JVM can simulate a marketplace of thousands of peers without a socket per peer. Every peer gets
+ * a Transport from the network and serves its frames by attaching its FrameHandler. A frame sent
+ * to a peer is not encoded; it is put on the queue of the network's scheduler, which is shared by
+ * all peers and runs the destination's request handler for it. Sending never blocks, and sending
+ * to a peer that isn't attached fails like a refused connection.
+ */
+public class MemoryNetwork {
+
+	// Global variables
+	private ConcurrentMap<PeerId, FrameHandler> handlers; // Handlers of the attached peers
+	private ExecutorService scheduler; // Runs the request handlers of every peer
+	private AtomicLong delivered; // Frames handed to a handler
+
+	// Constructor method that takes in the ExecutorMode of the scheduler and, for platform
+	// threads, the number of threads it has.
+	public MemoryNetwork(ExecutorMode mode, int threads) {
+		this.handlers = new ConcurrentHashMap<>();
+		this.scheduler = mode == ExecutorMode.VIRTUAL ? HandlerExecutors.newHandlerPool(mode) :
+			Executors.newFixedThreadPool(Math.max(1, threads));
+		this.delivered = new AtomicLong();
+	}
+
+	// The newTransport method returns the Transport a peer hosted in this process sends through.
+	public Transport newTransport(PeerId peerID){
+		return new Endpoint(peerID);
+	}
+
+	// Getter method for the number of frames handed to a handler
+	public long getDelivered(){
+		return this.delivered.get();
+	}
+
+	// The deliver method queues the request handler of the destination for a frame. Throws an
+	// exception if the destination isn't attached.
+	private void deliver(PeerId source, PeerId destination, Frame frame) throws IOException{
+		FrameHandler handler = handlers.get(destination);
+		if(handler == null){
+			throw new IOException("Peer " + destination + " is not attached");
+		}
+		scheduler.execute(handler.getRequestHandler(frame, new Link(source, destination)));
+		delivered.incrementAndGet();
+	}
+
+	/*
+	 * The Endpoint class is the Transport of a single peer in the network.
+	 */
+	private class Endpoint implements Transport {
+
+		// Global variables
+		private PeerId peerID; // The peer sending through this endpoint
+
+		// Constructor method that takes in the peer sending through this endpoint.
+		public Endpoint(PeerId peerID){
+			this.peerID = peerID;
+		}
+
+		// Sends a frame to a peer in the network
+		public void send(PeerId destination, Frame frame) throws IOException{
+			deliver(peerID, destination, frame);
+		}
+
+		// Nothing is kept per peer, so there is nothing to forget
+		public void remove(PeerId destination){}
+
+		// Attaches the handler of the peer and returns right away
+		public void serve(PeerId served, FrameHandler handler, PeerConfig config){
+			handlers.put(served, handler);
+		}
+
+	}
+
+	/*
+	 * The Link class stands in for the connection a frame arrived over, answers go back through
+	 * the network to the peer that sent the frame.
+	 */
+	private class Link implements ClientConnection {
+
+		// Global variables
+		private PeerId source; // The peer that sent the frame
+		private PeerId destination; // The peer that received the frame
+
+		// Constructor method that takes in the sender and receiver of the frame.
+		public Link(PeerId source, PeerId destination){
+			this.source = source;
+			this.destination = destination;
+		}
+
+		// Sends a frame back to the sender
+		public void send(Frame frame) throws IOException{
+			deliver(destination, source, frame);
+		}
+
+		// Getter method for the sender's address
+		public InetSocketAddress getRemoteAddress(){
+			return source.getAddress();
+		}
+
+		// Nothing to close
+		public void close(){}
+
+	}
+
+}
@@ -0,0 +1,178 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+// Import statements
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * The NeighborSummaries class exchanges attenuated Bloom filter summaries of the items sold
+ * near a peer with its neighbors. A summary a peer sends to a neighbor has one level for every
+ * distance up to the summary depth: level 0 holds the peer's own item and level d the items sold
+ * within d hops of the peer, not counting the path back through that neighbor. Each level is
+ * sent as its own SUMMARY frame and only when it changed, so a seller switching products
+ * updates the summaries of the peers within the summary depth and no further. A neighbor whose
+ * summary isn't known yet counts as selling everything, so a lookup is only pruned when a
+ * summary proves the neighbor can't lead to the item within the lookup's remaining hops. The
+ * summaries are computed while holding the lock and sent through the FanOut once it is released,
+ * so lookups checked against the summaries don't wait for a slow neighbor. Refreshes send one at
+ * a time, so summaries are still sent in the order they were computed.
+ */
+public class NeighborSummaries {
+
+	// Global variables
+	private Frame identity; // A frame with this peer as its source
+	private Topology topology; // This peer's neighbors
+	private FanOut fanOut; // Sends the summaries to the neighbors
+	private Object sending; // Held while a refresh computes and sends its summaries
+	private int depth; // Number of levels of a summary
+	private int own; // Bloom filter of this peer's own item
+	private Map<Integer, int[]> received; // Levels of the summary received from every neighbor by peer index
+	private Map<Integer, int[]> sent; // Levels of the summary last sent to every neighbor by peer index
+	private AtomicLong pruned; // Neighbors a lookup was not sent to because of their summary
+
+	// Constructor method that takes in this peer's identity, neighbors and FanOut and the
+	// PeerConfig that provides the summary depth. A depth of 0 disables summaries.
+	public NeighborSummaries(Frame identity, Topology topology, FanOut fanOut, PeerConfig config) {
+		this.identity = identity;
+		this.topology = topology;
+		this.fanOut = fanOut;
+		this.sending = new Object();
+		this.depth = Math.max(0, config.summaryDepth);
+		this.own = BloomFilter.EMPTY;
+		this.received = new HashMap<>();
+		this.sent = new HashMap<>();
+		this.pruned = new AtomicLong();
+	}
+
+	// The setOwnItem method is used by a seller to set the item id it sells, or -1 for none, and
+	// sends the changed summaries to the neighbors.
+	public void setOwnItem(int item){
+		int updated = item < 0 ? BloomFilter.EMPTY : BloomFilter.add(BloomFilter.EMPTY, item);
+		synchronized(this){
+			if(updated == this.own){
+				return;
+			}
+			this.own = updated;
+		}
+		refresh();
+	}
+
+	// The receive method stores a level of a neighbor's summary and sends the summaries that
+	// changed because of it.
+	public void receive(Frame summary){
+		int level = summary.getItem();
+		if(level >= depth){
+			return;
+		}
+		synchronized(this){
+			int[] levels = received.get(summary.getSourceIndex());
+			if(levels == null){
+				levels = new int[depth];
+				for(int d = 0; d < depth; d++){
+					levels[d] = BloomFilter.FULL;
+				}
+				received.put(summary.getSourceIndex(), levels);
+			}
+			if(levels[level] == summary.getHopcount()){
+				return;
+			}
+			levels[level] = summary.getHopcount();
+		}
+		refresh();
+	}
+
+	// The refresh method computes the summary for every neighbor and sends the levels that
+	// differ from the ones last sent to it. New neighbors receive every level. Neighbors that are
+	// sent the same level with the same filter are sent it in a single round of the FanOut. A
+	// neighbor that cannot be reached gets every level again on the next refresh.
+	public void refresh(){
+		synchronized(sending){
+			Map<Long, List<PeerId>> changes = changes();
+			for(Map.Entry<Long, List<PeerId>> change : changes.entrySet()){
+				int level = (int) (change.getKey() >>> 32);
+				int filter = (int) (long) change.getKey();
+				List<PeerId> failed = fanOut.send(change.getValue(), identity.derive(Frame.SUMMARY, filter, level, 0));
+				if(!failed.isEmpty()){
+					synchronized(this){
+						for(PeerId neighborID : failed){
+							sent.remove(neighborID.getIndex());
+						}
+					}
+				}
+			}
+		}
+	}
+
+	// The changes method computes the summary for every neighbor and returns the neighbors every
+	// changed level has to be sent to, by level in the upper and filter in the lower half of the
+	// key. The summaries are recorded as sent.
+	private synchronized Map<Long, List<PeerId>> changes(){
+		PeerId[] neighbors = topology.getSnapshot().getAll();
+		Map<Long, List<PeerId>> changes = new LinkedHashMap<>();
+		for(PeerId neighborID : neighbors){
+			int[] summary = summarize(neighbors, neighborID);
+			int[] last = sent.put(neighborID.getIndex(), summary);
+			for(int d = 0; d < depth; d++){
+				if(last == null || last[d] != summary[d]){
+					long key = ((long) d << 32) | (summary[d] & 0xFFFFFFFFL);
+					List<PeerId> targets = changes.get(key);
+					if(targets == null){
+						targets = new ArrayList<>();
+						changes.put(key, targets);
+					}
+					targets.add(neighborID);
+				}
+			}
+		}
+		return changes;
+	}
+
+	// The mayReach method returns false if the summary of the provided neighbor proves that a
+	// lookup for the item sent to it with the provided hopcount can't reach a seller of the item.
+	// The neighbor and the peers it forwards the lookup to are within hopcount - 1 hops of it.
+	public synchronized boolean mayReach(PeerId neighborID, int item, int hopcount){
+		int level = hopcount - 1;
+		int[] levels = received.get(neighborID.getIndex());
+		if(level < 0 || level >= depth || levels == null || BloomFilter.mightContain(levels[level], item)){
+			return true;
+		}
+		pruned.incrementAndGet();
+		return false;
+	}
+
+	// Getter method for the number of neighbors lookups were not sent to
+	public long getPruned(){
+		return this.pruned.get();
+	}
+
+	// The toString method describes the neighbors lookups were not sent to.
+	public String toString(){
+		return "Neighbor summaries: " + getPruned() + " neighbors pruned";
+	}
+
+	// The summarize method computes the summary sent to a neighbor from this peer's own item and
+	// the summaries received from its other neighbors. Must be called while holding the lock.
+	private int[] summarize(PeerId[] neighbors, PeerId target){
+		int[] summary = new int[depth];
+		for(int d = 0; d < depth; d++){
+			summary[d] = this.own;
+			if(d > 0){
+				for(PeerId neighborID : neighbors){
+					if(!neighborID.equals(target)){
+						int[] levels = received.get(neighborID.getIndex());
+						summary[d] |= levels == null ? BloomFilter.FULL : levels[d - 1];
+					}
+				}
+			}
+		}
+		return summary;
+	}
+
+}
@@ -0,0 +1,150 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+// Import statements
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+
+/*
+ * The PeerConfig class collects the run parameters of a peer that are hard-coded in the
+ * main method, so that they can be handed to a Buyer or Seller and the servers it creates
+ * as a single object. Every parameter starts out with a default value.
+ */
+public class PeerConfig {
+
+	// How this peer's listening server serves incoming connections
+	public ServerMode serverMode = ServerMode.SELECTOR;
+
+	// Number of selector threads used when the server runs in SELECTOR mode
+	public int eventLoopThreads = 2;
+
+	// What kind of threads run the listening server's request handlers
+	public ExecutorMode executorMode = ExecutorMode.PLATFORM;
+
+	// Longest time in milliseconds to wait for a connection to a neighbor
+	public int connectTimeout = 1000;
+
+	// Longest time in milliseconds to wait for a frame to be written to a neighbor
+	public int writeTimeout = 1000;
+
+	// Whether lookups are only forwarded away from their source, as in a line overlay, instead of
+	// to every neighbor, set from the registry's forwarding rule
+	public boolean directionalForwarding = true;
+
+	// How far a buyer's lookups travel
+	public SearchMode searchMode = SearchMode.FLOOD;
+
+	// Number of walkers a buyer launches for a lookup in the RANDOM_WALK SearchMode
+	public int walkers = 4;
+
+	// Number of hops a walker may take
+	public int walkHopcount = 64;
+
+	// Number of hops between a walker's checks with its buyer
+	public int walkCheckInterval = 4;
+
+	// Address of the registry, whose item directory is used in the DIRECTORY SearchMode, set by
+	// the main method
+	public InetSocketAddress registryAddress = null;
+
+	// Most sellers a buyer asks the registry's item directory for in the DIRECTORY SearchMode
+	public int directoryListings = 4;
+
+	// Number of ids of the Chord ring in the DHT SearchMode, the registry's number of peers, set by
+	// the main method
+	public int ringSize = 0;
+
+	// Time in milliseconds between a ring node's stabilizations with its successor
+	public long ringStabilizeInterval = 250;
+
+	// Time in milliseconds between a seller's repeated provider records on the ring
+	public long ringRepublishInterval = 2000;
+
+	// Number of items a peer caches seller locations for, 0 disables the location cache
+	public int locationCacheSize = 16;
+
+	// Time in milliseconds a cached seller location stays fresh
+	public long locationCacheTtl = 2000;
+
+	// Number of recently forwarded lookups a peer remembers the previous hop of
+	public int reversePathSize = 4096;
+
+	// Number of levels of the item summaries exchanged with neighbors, 0 disables them
+	public int summaryDepth = 2;
+
+	// Number of items a buyer remembers the last seller of to buy from directly, 0 disables it
+	public int stickySellers = 8;
+
+	// Largest number of lookups a buyer has in flight at once
+	public int pipelineDepth = 4;
+
+	// When a buyer stops collecting replies to a lookup
+	public CompletionPolicy completionPolicy = CompletionPolicy.ADAPTIVE;
+
+	// Number of replies that complete a lookup under the K_REPLIES policy
+	public int completionReplies = 3;
+
+	// Longest time in milliseconds a buyer collects replies to a lookup
+	public long requestWindow = 1000;
+
+	// Shortest time in milliseconds a buyer collects replies under the ADAPTIVE policy
+	public long minRequestWindow = 10;
+
+	// Reply latency percentile the ADAPTIVE deadline is derived from
+	public double adaptivePercentile = 0.95;
+
+	// Time in milliseconds a seller keeps an item reserved for a buyer that hasn't decided
+	public long leaseDuration = 3000;
+
+	// Length in milliseconds of a tick of the seller's lease timer
+	public long leaseTick = 100;
+
+	// Scheduler shared by the timers of every peer hosted in this process, null to give every
+	// peer's timers threads of their own
+	public ScheduledExecutorService scheduler = null;
+
+	// Clock peers measure response times, deadlines and expiry times with
+	public Clock clock = Clock.SYSTEM;
+
+	// Response times every buyer using this config records its requests' latencies into, null to
+	// give every buyer its own
+	public ResponseTimes responseTimes = null;
+
+	// Emulated network conditions of the links peers send over, null to send frames unchanged
+	public LinkModel linkModel = null;
+
+	// Seed of the random choices of every peer, 0 seeds them from the System time so that every
+	// run differs
+	public long seed = 0;
+
+	// Number of purchases a buyer makes before it finishes
+	public int purchases = 1000;
+
+	// Whether a buyer's requests are run by events on the scheduler instead of a thread of its
+	// own, which lets a simulation run every peer on a single thread
+	public boolean eventDriven = false;
+
+	// Whether peers append their requests, replies and sales to their output files
+	public boolean writeOutput = true;
+
+	// Number of peers in the marketplace, which bounds the peer indices a peer tracks lookups of,
+	// 0 if unknown, set by the main method
+	public int peerCount = 0;
+
+	// Constructor method that keeps every parameter at its default value.
+	public PeerConfig() {}
+
+	// The newRandom method returns the source of one kind of random choice of the peer with the
+	// provided index. With a seed every peer and purpose get a stream of their own that is the
+	// same in every run, without one the stream is seeded from the System time.
+	public Random newRandom(int peerIndex, String purpose){
+		if(seed == 0){
+			return new Random();
+		}
+		return new Random(seed * 0x9E3779B97F4A7C15L + peerIndex * 0xBF58476D1CE4E5B9L + purpose.hashCode());
+	}
+
+}
@@ -0,0 +1,74 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+// Import statements
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+
+/*
+ * The PeerId class identifies a peer by its peer index, listening port and resolved listening
+ * socket address. It replaces the "/ip:port|index" peerID string, which had to be parsed again
+ * on every use. A PeerId is created once, when the registry names the peer or when a frame from
+ * it first arrives, and is interned in the PeerTable so that every part of a peer shares one
+ * instance per peer index. PeerIds are immutable and equal if their peer indices are equal.
+ */
+public class PeerId {
+
+	// Global variables
+	private final int index; // The peer's index
+	private final int port; // The peer's listening port
+	private final InetSocketAddress address; // The peer's resolved listening socket address
+	private final byte[] addr; // The raw IP address of the peer
+
+	// Constructor method that takes in the peer's index and resolved listening socket address.
+	public PeerId(int index, InetSocketAddress address) {
+		this.index = index;
+		this.port = address.getPort();
+		this.address = address;
+		this.addr = address.getAddress().getAddress();
+	}
+
+	// The getIdentity method returns a frame that has this peer as its source. The frame is used
+	// to derive every frame the peer sends.
+	public Frame getIdentity(){
+		return new Frame(Frame.ADJ, 0, 0, 0, index, port, addr);
+	}
+
+	// The matches method returns true if the provided frame's source has this peer's address.
+	public boolean matches(Frame frame){
+		return frame.getSourcePort() == port && Arrays.equals(frame.getSourceAddr(), addr);
+	}
+
+	// Getter methods for the peer's index, listening port and listening socket address
+	public int getIndex(){
+		return this.index;
+	}
+
+	public int getPort(){
+		return this.port;
+	}
+
+	public InetSocketAddress getAddress(){
+		return this.address;
+	}
+
+	// PeerIds of the same peer index are equal
+	@Override
+	public boolean equals(Object other){
+		return other instanceof PeerId && ((PeerId) other).index == this.index;
+	}
+
+	@Override
+	public int hashCode(){
+		return this.index;
+	}
+
+	// Returns the peer in the same "/ip:port|index" form the peerID strings used
+	@Override
+	public String toString(){
+		return this.address.toString() + "|" + this.index;
+	}
+
+}
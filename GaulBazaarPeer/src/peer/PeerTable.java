@@ -0,0 +1,80 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+// Import statements
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+ * The PeerTable class interns the PeerIds of every peer this peer knows about by peer index,
+ * so a peer's address is only resolved once. PeerIds are built from the raw address bytes of
+ * a frame, which never involves name resolution, and later frames from the same peer are
+ * answered from the table. Like the DuplicateFilter, the table is split into pages of 1024
+ * peer indices that are only allocated once a peer of the page is interned.
+ */
+public class PeerTable {
+
+	// Global variables
+	private static final int PAGE_BITS = 10; // Peers per page as a power of two
+	private static final int PAGE_SIZE = 1 << PAGE_BITS; // Peers per page
+	public static final int MAX_PEERS = 1 << 22; // Number of peer indices the table covers
+	private AtomicReferenceArray<AtomicReferenceArray<PeerId>> pages; // PeerId pages by page number, null until used
+
+	// Constructor method that creates the page directory, no page is allocated yet.
+	public PeerTable() {
+		this.pages = new AtomicReferenceArray<>(MAX_PEERS >> PAGE_BITS);
+	}
+
+	// The intern method returns the PeerId of the peer a frame originates from. The PeerId is
+	// created from the frame's source fields the first time the peer is seen, or again if the
+	// peer came back with a different address. Throws an exception if the frame's address is
+	// invalid or the peer index is out of range.
+	public PeerId intern(Frame frame) throws UnknownHostException{
+		int index = frame.getSourceIndex();
+		if(index < 0 || index >= MAX_PEERS){
+			throw new UnknownHostException("Peer index " + index + " is out of range");
+		}
+		AtomicReferenceArray<PeerId> page = getPage(index >> PAGE_BITS);
+		int slot = index & (PAGE_SIZE - 1);
+		while(true){
+			PeerId known = page.get(slot);
+			if(known != null && known.matches(frame)){
+				return known;
+			}
+			PeerId created = new PeerId(index, new InetSocketAddress(
+					InetAddress.getByAddress(frame.getSourceAddr()), frame.getSourcePort()));
+			if(page.compareAndSet(slot, known, created)){
+				return created;
+			}
+		}
+	}
+
+	// The get method returns the interned PeerId of a peer index, or null if it isn't known.
+	public PeerId get(int index){
+		if(index < 0 || index >= MAX_PEERS){
+			return null;
+		}
+		AtomicReferenceArray<PeerId> page = pages.get(index >> PAGE_BITS);
+		return page == null ? null : page.get(index & (PAGE_SIZE - 1));
+	}
+
+	// The getPage method returns the page with the provided number, allocating it if needed.
+	private AtomicReferenceArray<PeerId> getPage(int pageNum){
+		AtomicReferenceArray<PeerId> page = pages.get(pageNum);
+		if(page == null){
+			AtomicReferenceArray<PeerId> newPage = new AtomicReferenceArray<>(PAGE_SIZE);
+			if(pages.compareAndSet(pageNum, null, newPage)){
+				page = newPage;
+			}
+			else{
+				page = pages.get(pageNum);
+			}
+		}
+		return page;
+	}
+
+}
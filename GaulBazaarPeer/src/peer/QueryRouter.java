@@ -0,0 +1,204 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+// Import statements
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * The QueryRouter class decides where a peer sends lookups and carries seller locations back
+ * along the path lookups took. A peer that forwards a lookup remembers where it came from in its
+ * ReversePath. A seller that offers its product for a lookup also sends an ADVERT to the peer the
+ * lookup came from, and every peer on the path adds the seller to its LocationCache and passes
+ * the ADVERT on to its own previous hop until it reaches the buyer. When a peer has a fresh
+ * cached seller for a lookup's item the lookup is steered to those sellers instead of being
+ * flooded to the neighbors. A steered lookup keeps its remaining hops, so a seller that no
+ * longer has the item floods it on from there. A flooded lookup skips the neighbors whose
+ * NeighborSummaries show that no seller of the item is within the lookup's remaining hops.
+ * In the DIRECTORY SearchMode a peer's own lookups are first sent to the sellers the registry's
+ * item directory lists, and sellers publish their item to the directory. The DHT SearchMode
+ * works the same way with the providers stored in the peers' Chord ring.
+ */
+public class QueryRouter {
+
+	// Global variables
+	private Frame identity; // A frame with this peer as its source
+	private Topology topology; // This peer's neighbors
+	private PeerTable peers; // Interned PeerIds of known peers
+	private FanOut fanOut; // Sends lookups to several peers at once
+	private Transport connections; // Carries frames to other peers
+	private ReversePath reversePath; // Previous hop of every recently forwarded lookup
+	private LocationCache cache; // Recent sellers of items
+	private NeighborSummaries summaries; // Items sold near every neighbor
+	private DirectoryClient directory; // Connection to the registry's item directory, null unless in the DIRECTORY SearchMode
+	private ChordNode ring; // This peer's node of the Chord ring, null unless in the DHT SearchMode
+
+	// Constructor method that takes in this peer's identity, neighbors and connections and the
+	// PeerConfig that sizes the reverse path, location cache and neighbor summaries and decides if
+	// the registry's item directory or a Chord ring is used.
+	public QueryRouter(Frame identity, Topology topology, PeerTable peers, FanOut fanOut,
+			Transport connections, PeerConfig config) {
+		this.identity = identity;
+		this.topology = topology;
+		this.peers = peers;
+		this.fanOut = fanOut;
+		this.connections = connections;
+		this.reversePath = new ReversePath(config.reversePathSize);
+		this.cache = new LocationCache(config);
+		this.summaries = new NeighborSummaries(identity, topology, fanOut, config);
+		if(config.searchMode == SearchMode.DIRECTORY && config.registryAddress != null){
+			this.directory = new DirectoryClient(identity, config.registryAddress, config);
+		}
+		if(config.searchMode == SearchMode.DHT && config.ringSize > 0){
+			this.ring = new ChordNode(identity, topology, peers, connections, config.ringSize, config);
+		}
+	}
+
+	// The originate method sends a lookup made by this peer, either to the sellers of its item
+	// listed by the directory or resolved through the ring with a hopcount of 1, to the cached
+	// sellers of its item or to every neighbor that may lead to a seller. Returns the number of
+	// lookup frames sent.
+	public int originate(Frame lookup){
+		PeerId[] listed = new PeerId[0];
+		if(directory != null){
+			listed = directory.query(lookup.getItem(), lookup.getSeqNum(), peers);
+		}
+		else if(ring != null){
+			listed = ring.resolve(lookup.getItem());
+		}
+		if(listed.length > 0){
+			return listed.length - fanOut.send(listed, lookup.withHopcount(1)).size();
+		}
+		PeerId[] sellers = cache.lookup(lookup.getItem());
+		if(sellers.length > 0){
+			return steer(sellers, lookup);
+		}
+		else{
+			return flood(topology.getSnapshot().getAll(), lookup);
+		}
+	}
+
+	// The route method forwards another peer's lookup with the provided remaining hops. The peer
+	// it came from is remembered for the lookup's ADVERTs, then the lookup is steered to the
+	// cached sellers of its item or forwarded to the neighbors the overlay's forwarding rule
+	// picks for the lookup's source and previous hop that may lead to a seller.
+	public void route(Frame lookup, int hopcount){
+		reversePath.record(lookup.getSourceIndex(), lookup.getSeqNum(), peers.get(lookup.getVia()));
+		Frame forwarded = lookup.withHopcount(hopcount).withVia(identity.getSourceIndex());
+		PeerId[] sellers = cache.lookup(lookup.getItem());
+		if(sellers.length > 0){
+			steer(sellers, forwarded);
+		}
+		else{
+			flood(topology.getForwardTargets(lookup.getSourceIndex(), lookup.getVia()), forwarded);
+		}
+	}
+
+	// The advertise method is used by a seller that offered its product for a lookup to send an
+	// ADVERT to the peer the lookup came from. The ADVERT has the seller as its source and carries
+	// the lookup's source index as its hopcount so that it can follow the lookup's path back.
+	public void advertise(Frame lookup){
+		PeerId previousHop = peers.get(lookup.getVia());
+		if(previousHop != null){
+			send(previousHop, identity.derive(Frame.ADVERT, lookup.getSourceIndex(), lookup.getItem(), lookup.getSeqNum()));
+		}
+	}
+
+	// The relay method takes an ADVERT that reached this peer, caches the seller for the item and
+	// passes the ADVERT on to the peer the lookup came from, if this peer forwarded it.
+	public void relay(Frame advert) throws IOException{
+		cache.learn(advert.getItem(), peers.intern(advert));
+		PeerId previousHop = reversePath.get(advert.getHopcount(), advert.getSeqNum());
+		if(previousHop != null){
+			send(previousHop, advert);
+		}
+	}
+
+	// The summarize method takes a SUMMARY that reached this peer from a neighbor.
+	public void summarize(Frame summary){
+		summaries.receive(summary);
+	}
+
+	// The setOwnItem method is used by a seller to update its summaries and its publication in the
+	// directory or provider record on the ring with the item id it sells.
+	public void setOwnItem(int item){
+		summaries.setOwnItem(item);
+		if(directory != null){
+			directory.publish(item);
+		}
+		if(ring != null){
+			ring.provide(item);
+		}
+	}
+
+	// The receiveRing method takes a frame of the Chord ring that reached this peer.
+	public void receiveRing(Frame frame) throws IOException{
+		if(ring != null){
+			ring.receive(frame);
+		}
+	}
+
+	// The refreshSummaries method sends summaries to neighbors that haven't received them yet.
+	public void refreshSummaries(){
+		summaries.refresh();
+	}
+
+	// Getter method for the location cache, whose counters measure the hops it saved
+	public LocationCache getCache(){
+		return this.cache;
+	}
+
+	// Getter method for the neighbor summaries, whose counter measures the neighbors pruned
+	public NeighborSummaries getSummaries(){
+		return this.summaries;
+	}
+
+	// Getter method for the directory client, null unless in the DIRECTORY SearchMode
+	public DirectoryClient getDirectory(){
+		return this.directory;
+	}
+
+	// Getter method for the ring node, whose counters hold the lookup hop histogram, null unless
+	// in the DHT SearchMode
+	public ChordNode getRing(){
+		return this.ring;
+	}
+
+	// The flood method sends a lookup to the provided neighbors whose summaries allow a seller of
+	// its item within its remaining hops. Returns the number of neighbors the lookup reached.
+	private int flood(PeerId[] neighbors, Frame lookup){
+		List<PeerId> eligible = new ArrayList<>(neighbors.length);
+		for(PeerId neighborID : neighbors){
+			if(summaries.mayReach(neighborID, lookup.getItem(), lookup.getHopcount())){
+				eligible.add(neighborID);
+			}
+		}
+		if(eligible.isEmpty()){
+			return 0;
+		}
+		return eligible.size() - fanOut.send(eligible, lookup).size();
+	}
+
+	// The steer method sends a lookup to cached sellers, sellers that cannot be reached are
+	// forgotten. Returns the number of sellers the lookup reached.
+	private int steer(PeerId[] sellers, Frame lookup){
+		List<PeerId> failed = fanOut.send(sellers, lookup);
+		for(PeerId sellerID : failed){
+			cache.forget(sellerID);
+		}
+		return sellers.length - failed.size();
+	}
+
+	// The send method sends an ADVERT to a single peer. ADVERTs are only hints, so a peer that
+	// cannot be reached is skipped.
+	private void send(PeerId peerID, Frame advert){
+		try{
+			connections.send(peerID, advert);
+		}
+		catch(IOException e){ System.out.println(peerID + ": " + e.getMessage()); }
+	}
+
+}
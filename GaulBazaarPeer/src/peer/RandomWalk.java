@@ -0,0 +1,79 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+// Import statements
+import java.io.IOException;
+import java.util.Random;
+
+/*
+ * The RandomWalk class moves the random walkers of buyers' lookups through the overlay. A buyer
+ * launches a number of walkers, each a WALK frame with the buyer as its source, and every peer a
+ * walker reaches passes it on to one random neighbor until its hops run out. A seller of the
+ * requested product stops the walker by offering its product instead. Whenever a walker's
+ * remaining hops are a multiple of the check interval the peer holding it sends a CHECK frame to
+ * the buyer instead of moving it, and the buyer sends the walker back to that peer only if the
+ * request is still open, so walkers stop soon after a request is satisfied. A walker that runs
+ * out of hops checks back one last time so the buyer can count its hops.
+ */
+public class RandomWalk {
+
+	// Global variables
+	private Frame identity; // A frame with this peer as its source
+	private Topology topology; // This peer's neighbors
+	private PeerTable peers; // Interned PeerIds of known peers
+	private FanOut fanOut; // Sends walkers to neighbors
+	private Transport connections; // Carries frames to other peers
+	private int checkInterval; // Number of hops between a walker's checks with its buyer
+	private Random rand; // Picks the neighbor a walker moves to
+
+	// Constructor method that takes in this peer's identity, neighbors and connections and the
+	// PeerConfig that provides the check interval and the seed of the walkers' moves.
+	public RandomWalk(Frame identity, Topology topology, PeerTable peers, FanOut fanOut,
+			Transport connections, PeerConfig config) {
+		this.identity = identity;
+		this.topology = topology;
+		this.peers = peers;
+		this.fanOut = fanOut;
+		this.connections = connections;
+		this.checkInterval = Math.max(1, config.walkCheckInterval);
+		this.rand = config.newRandom(identity.getSourceIndex(), "RandomWalk");
+	}
+
+	// The launch method is used by a buyer to start the provided number of walkers for a lookup,
+	// each on a random neighbor.
+	public void launch(Frame walk, int walkers){
+		for(int i = 0; i < walkers; i++){
+			move(walk);
+		}
+	}
+
+	// The step method takes a walker that reached this peer and wasn't stopped by it, uses up
+	// one of its hops and either checks back with the walker's buyer or moves it on.
+	public void step(Frame walk) throws IOException{
+		int hopcount = walk.getHopcount() - 1;
+		if(hopcount % checkInterval == 0){
+			connections.send(peers.intern(walk), identity.derive(Frame.CHECK, hopcount, walk.getItem(), walk.getSeqNum()));
+		}
+		else{
+			move(walk.withHopcount(hopcount));
+		}
+	}
+
+	// The move method sends a walker to a random neighbor. Neighbors that cannot be reached are
+	// removed by the fan-out and another one is tried, the walker is lost once no neighbors remain.
+	private void move(Frame walk){
+		while(true){
+			PeerId[] neighbors = topology.getSnapshot().getAll();
+			if(neighbors.length == 0){
+				return;
+			}
+			PeerId next = neighbors[rand.nextInt(neighbors.length)];
+			if(fanOut.send(new PeerId[]{ next }, walk).isEmpty()){
+				return;
+			}
+		}
+	}
+
+}
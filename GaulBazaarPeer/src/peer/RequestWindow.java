@@ -0,0 +1,94 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+// Import statements
+import java.util.Arrays;
+
+/*
+ * The RequestWindow class applies a buyer's CompletionPolicy. It tells the ItemRequest monitor
+ * how long a request may stay open and if the replies received so far complete it. For the
+ * ADAPTIVE policy it keeps the latencies of the most recent replies and sets the deadline to
+ * twice the configured percentile of them, bounded by the minimum and maximum window. Replies
+ * that arrive after their request was decided are still measured. A lookup that timed out
+ * without the reply it was sure to get is kept as a timeout, whose latency is only known to be
+ * longer than the deadline it missed. Timeouts sort above the replies up to their deadline, and
+ * if the percentile falls on a timeout it is only known to be longer than that deadline, so the
+ * next deadline is at least twice the missed one and grows until the replies are observed
+ * again. It is only used while holding the ItemRequest monitor's lock.
+ */
+public class RequestWindow {
+
+	// Global variables
+	private static final int SAMPLES = 256; // Number of recent reply latencies kept
+	private CompletionPolicy policy; // When a request is complete
+	private int replies; // Number of replies that complete a request under K_REPLIES
+	private long minWindow; // Shortest adaptive deadline in milliseconds
+	private long maxWindow; // Longest time a request stays open in milliseconds
+	private double percentile; // Latency percentile the adaptive deadline is derived from
+	private long[] latencies; // Ring of recent reply latencies and missed deadlines in milliseconds
+	private boolean[] timeouts; // Whether each latency is a missed deadline
+	private int sampleCount; // Number of latencies recorded so far
+
+	// Constructor method that takes the policy and its parameters from the PeerConfig.
+	public RequestWindow(PeerConfig config) {
+		this.policy = config.completionPolicy;
+		this.replies = Math.max(1, config.completionReplies);
+		this.minWindow = config.minRequestWindow;
+		this.maxWindow = config.requestWindow;
+		this.percentile = config.adaptivePercentile;
+		this.latencies = new long[SAMPLES];
+		this.timeouts = new boolean[SAMPLES];
+		this.sampleCount = 0;
+	}
+
+	// The recordLatency method stores the latency of a reply for the adaptive deadline.
+	public void recordLatency(long latency){
+		latencies[sampleCount % SAMPLES] = latency;
+		timeouts[sampleCount % SAMPLES] = false;
+		sampleCount++;
+	}
+
+	// The recordTimeout method stores a lookup that missed the provided deadline without the
+	// reply it was sure to get, whose latency is longer than the deadline.
+	public void recordTimeout(long deadline){
+		latencies[sampleCount % SAMPLES] = deadline;
+		timeouts[sampleCount % SAMPLES] = true;
+		sampleCount++;
+	}
+
+	// The isComplete method returns true if the provided number of replies completes a request.
+	public boolean isComplete(int replyCount){
+		switch(policy){
+		case FIRST_REPLY : return replyCount >= 1;
+		case K_REPLIES : return replyCount >= replies;
+		default : return false;
+		}
+	}
+
+	// The hasEnough method returns true if the provided number of replies to a lookup ring is
+	// enough to stop an expanding ring search from growing. The policies that only close a
+	// request at its deadline are satisfied by a single reply.
+	public boolean hasEnough(int replyCount){
+		return replyCount >= (policy == CompletionPolicy.K_REPLIES ? replies : 1);
+	}
+
+	// The getDeadline method returns how many milliseconds a new request may stay open.
+	public long getDeadline(){
+		if(policy != CompletionPolicy.ADAPTIVE || sampleCount == 0){
+			return maxWindow;
+		}
+
+		// Sort the samples with every timeout right after the replies up to its deadline
+		long[] sorted = new long[Math.min(sampleCount, SAMPLES)];
+		for(int i = 0; i < sorted.length; i++){
+			sorted[i] = 2 * latencies[i] + (timeouts[i] ? 1 : 0);
+		}
+		Arrays.sort(sorted);
+		int rank = (int) Math.ceil(percentile * sorted.length) - 1;
+		long deadline = 2 * (sorted[Math.max(0, Math.min(rank, sorted.length - 1))] / 2);
+		return Math.max(minWindow, Math.min(maxWindow, deadline));
+	}
+
+}
@@ -0,0 +1,79 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+// Import statements
+import java.io.IOException;
+import java.io.Writer;
+
+/*
+ * The ResponseTimes class holds the LatencyHistograms of a buyer's requests: the latency of every
+ * seller's reply since its request was issued, the time until the first reply of every request and
+ * the time until every purchase was decided. The histograms may be shared by the buyers of a
+ * process, which record into them without a lock, and merge with the ResponseTimes of other
+ * processes or partitions.
+ */
+public class ResponseTimes {
+
+	// Global variables
+	private LatencyHistogram replies; // Latency of every seller's reply
+	private LatencyHistogram firstReplies; // Time until the first reply of every request
+	private LatencyHistogram purchases; // Time until every purchase was decided
+
+	// Constructor method that creates empty histograms.
+	public ResponseTimes() {
+		this.replies = new LatencyHistogram();
+		this.firstReplies = new LatencyHistogram();
+		this.purchases = new LatencyHistogram();
+	}
+
+	// Getter methods for the histograms of the replies, the first replies and the purchases
+	public LatencyHistogram getReplies(){
+		return this.replies;
+	}
+
+	public LatencyHistogram getFirstReplies(){
+		return this.firstReplies;
+	}
+
+	public LatencyHistogram getPurchases(){
+		return this.purchases;
+	}
+
+	// The merge method adds the response times of the provided ResponseTimes to these.
+	public void merge(ResponseTimes other){
+		this.replies.merge(other.replies);
+		this.firstReplies.merge(other.firstReplies);
+		this.purchases.merge(other.purchases);
+	}
+
+	// The snapshot method returns a copy of the response times recorded so far.
+	public ResponseTimes snapshot(){
+		ResponseTimes copy = new ResponseTimes();
+		copy.merge(this);
+		return copy;
+	}
+
+	// The write method writes the percentiles of every histogram followed by the histogram encoded,
+	// so that the response times written by several buyers can be decoded and merged.
+	public void write(Writer writer) throws IOException{
+		String[] names = { "Reply", "First reply", "Purchase" };
+		LatencyHistogram[] histograms = { replies, firstReplies, purchases };
+		for(int i = 0; i < names.length; i++){
+			writer.write(names[i] + " latency: " + histograms[i]);
+			writer.write(System.getProperty("line.separator"));
+			writer.write(names[i] + " histogram: " + histograms[i].encode());
+			writer.write(System.getProperty("line.separator"));
+		}
+	}
+
+	// Returns the percentiles of every histogram
+	@Override
+	public String toString(){
+		return "Reply latency: " + replies + System.getProperty("line.separator") +
+				"First reply latency: " + firstReplies + System.getProperty("line.separator") +
+				"Purchase latency: " + purchases;
+	}
+
+}
@@ -0,0 +1,51 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+// Import statements
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * The ReversePath class remembers the peer every lookup forwarded by this peer came from, so
+ * that a seller's ADVERT for the lookup can be sent back along the path the lookup took. Lookups
+ * are identified by their source's peer index and sequence number. Every seller that answers a
+ * lookup sends an ADVERT along the same path, so an entry is kept while ADVERTs pass through and
+ * only the least recently used lookup is dropped once the table is full.
+ */
+public class ReversePath {
+
+	// Global variables
+	private Map<Long, PeerId> previousHops; // Peer each recent lookup came from, least recently used first
+
+	// Constructor method that takes in the number of lookups remembered.
+	public ReversePath(final int capacity) {
+		this.previousHops = new LinkedHashMap<Long, PeerId>(16, 0.75f, true){
+			private static final long serialVersionUID = 1L;
+			protected boolean removeEldestEntry(Map.Entry<Long, PeerId> eldest){
+				return size() > capacity;
+			}
+		};
+	}
+
+	// The record method remembers the peer a lookup with the provided source and sequence number
+	// came from.
+	public synchronized void record(int sourceIndex, int seqNum, PeerId previousHop){
+		if(previousHop != null){
+			previousHops.put(key(sourceIndex, seqNum), previousHop);
+		}
+	}
+
+	// The get method returns the peer a lookup came from. Returns null if the lookup wasn't
+	// forwarded by this peer or was forgotten already.
+	public synchronized PeerId get(int sourceIndex, int seqNum){
+		return previousHops.get(key(sourceIndex, seqNum));
+	}
+
+	// The key method packs a lookup's source and sequence number into a single key.
+	private static long key(int sourceIndex, int seqNum){
+		return ((long) sourceIndex << 32) | (seqNum & 0xFFFFFFFFL);
+	}
+
+}
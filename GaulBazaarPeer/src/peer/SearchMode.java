@@ -0,0 +1,24 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+/*
+ * The SearchMode enum decides how far a buyer's lookups travel. FLOOD sends every lookup with the
+ * default hopcount, so it reaches the whole network. EXPANDING_RING first sends a lookup with a
+ * hopcount of 1 and, if the request window passes without enough replies, sends it again with
+ * twice the hopcount until enough replies arrive or the default hopcount is reached. RANDOM_WALK
+ * sends a lookup as a few random walkers that each move to one random neighbor per hop and
+ * periodically check back with the buyer, instead of flooding it. DIRECTORY asks the registry's
+ * item directory for sellers of the item, which sellers publish their item to, and sends the
+ * lookup to those sellers alone; an item without listed sellers is flooded as in FLOOD. DHT
+ * resolves the providers of the item through a Chord ring of the peers, which sellers store
+ * provider records in, and sends the lookup to them alone the same way.
+ */
+public enum SearchMode {
+	FLOOD,
+	EXPANDING_RING,
+	RANDOM_WALK,
+	DIRECTORY,
+	DHT
+}
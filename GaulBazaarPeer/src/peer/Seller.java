@@ -5,9 +5,6 @@ package peer;
 
 // Import statements
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.net.InetSocketAddress;
-import java.net.Socket;
 import java.util.ArrayList;
 
 /*
@@ -18,38 +15,64 @@ import java.util.ArrayList;
 public class Seller {
 
 	// Global variables
-	protected String peerID; //This seller's peerID
-	protected ArrayList<String> neighbors; //This peer's neighbors
-	protected PeerIDParser idParser; //A PeerIDParser object
+	protected PeerId peerID; //This seller's PeerId
+	protected Frame identity; //A frame with this seller as its source
+	protected Topology topology; //This peer's neighbors
+	protected PeerTable peers; //Interned PeerIds of known peers
 	protected ItemStore itemStore; //An ItemStore monitor representing this seller's inventory
 	protected String outputFile; //An output file path
+	protected PeerConfig config; //Run parameters of this peer
+	protected Transport connections; //Carries frames to other peers
+	protected FanOut fanOut; //Sends frames to several neighbors at once
+	protected QueryRouter router; //Routes lookups and caches seller locations
 	
 	// Constructor method that initializes global variables from parameters passed by the main
 	// method. Also initializes the ItemStore monitor for this seller and calls the init method.
-	public Seller(String peerID, 
-			ArrayList<String> neighbors, 
-			PeerIDParser idParser, 
-			String outputFile) {
+	// Frames are carried over TCP connections, so the constructor serves incoming frames and
+	// does not return.
+	public Seller(PeerId peerID, 
+			ArrayList<PeerId> neighbors, 
+			PeerTable peers, 
+			String outputFile,
+			PeerConfig config) {
+		this(peerID, neighbors, peers, outputFile, config, new ConnectionManager(config.connectTimeout));
+	}
+
+	// Constructor method that initializes global variables from parameters passed by the main
+	// method, including the Transport that carries frames to other peers, which cross emulated
+	// links if the PeerConfig has a LinkModel. Also initializes the ItemStore monitor for this
+	// seller and calls the init method.
+	public Seller(PeerId peerID, 
+			ArrayList<PeerId> neighbors, 
+			PeerTable peers, 
+			String outputFile,
+			PeerConfig config,
+			Transport connections) {
 		this.peerID = peerID;
-		this.idParser = idParser;
-		this.neighbors = neighbors;
-		this.itemStore = new ItemStore(idParser.getPeerIndex(peerID), outputFile);
+		this.peers = peers;
+		this.identity = peerID.getIdentity();
+		this.itemStore = new ItemStore(peerID.getIndex(), outputFile, config);
 		this.outputFile = outputFile;
+		this.config = config;
+		this.connections = config.linkModel != null ? new LinkEmulator(peerID, connections, config) : connections;
+		this.topology = new Topology(peerID.getIndex(), neighbors, config.directionalForwarding);
+		this.fanOut = new FanOut(this.connections, topology, config);
+		this.router = new QueryRouter(identity, topology, peers, fanOut, this.connections, config);
 		init();
 	}
 
 	// The init method calls the neighborBroadcast method to broadcast adjacency messages and  
-	// starts this seller's listening server by creating and enabling a SellerServer object.
+	// serves this seller's incoming frames with a SellerServer over its Transport.
 	private void init(){
 		
-		// Performs adjacency broadcast
+		// Performs adjacency broadcast and sends the neighbors summaries of this seller's product
 		neighborBroadcast();
+		router.setOwnItem(ItemCatalog.getItemId(itemStore.getItem()));
 		
-		// Initializes and enables this seller's SellerServer
-		int portNum = idParser.getPeerPort(peerID);
-		SellerServer listener = new SellerServer(portNum, peerID, neighbors, idParser, itemStore);
+		// Initializes this seller's SellerServer and serves incoming frames with it
+		SellerServer listener = new SellerServer(peerID, identity, topology, peers, itemStore, config, fanOut, connections, router);
 		try{
-			listener.enable();
+			connections.serve(peerID, listener, config);
 		} catch(IOException e){
 			e.printStackTrace();
 		}
@@ -60,39 +83,14 @@ public class Seller {
 	// buyer a neighbor. These adjacency messages are preceded by the header string "adj".
 	private void neighborBroadcast(){
 		
-		// Store any non-existent neighbors
-		ArrayList<String> badNeighbors = new ArrayList<>();
-		
-		// Iterate through all neighbors
-		for(int i = 0; i < neighbors.size(); i++){
-			String neighborID = neighbors.get(i);
-			
-			try{
-				// Create a socket connection a neighbor
-				InetSocketAddress neighborAddr = idParser.getPeerSocket(neighborID);
-				Socket socket = new Socket();
-				socket.connect(neighborAddr);
-				
-				// Create an outgoing message channel with the neighbor
-				PrintWriter msgToNeighbor = new PrintWriter(socket.getOutputStream(), true);
-				
-				// Send neighbor an adjacency message with its peerID
-				msgToNeighbor.println("adj");
-				msgToNeighbor.println(peerID);
-				
-				// Close the socket connection
-				socket.close();
-			}
-			catch(IOException e){ 
-				System.out.println(e.getMessage()); 
-				badNeighbors.add(neighborID); // Identify non-existent neighbors
-			}
-			
-		}
-		// Remove non-existing neighbors
-		for(String badNeighbor : badNeighbors){
-			this.neighbors.remove(badNeighbor);
-		}
+		// Send every neighbor an adjacency frame identifying this seller at once, neighbors
+		// that cannot be reached are removed by the fan-out.
+		this.fanOut.sendToAll(identity.derive(Frame.ADJ, 0, 0, 0));
+	}
+	
+	// Getter method for this seller's ItemStore
+	public ItemStore getItemStore(){
+		return this.itemStore;
 	}
 	
 }
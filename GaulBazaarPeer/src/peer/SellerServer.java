@@ -4,224 +4,214 @@
 package peer;
 
 // Import statements
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.net.InetSocketAddress;
-import java.net.Socket;
-import java.util.ArrayList;
 
 /*
- * The SellerServer class extends BaseServer and implements and executes SellerRequestHander threads 
- * to handle incoming lookup and adjacency messages.
+ * The SellerServer class implements FrameHandler and creates SellerRequestHander threads to
+ * handle incoming lookup, adjacency, commit and decline messages delivered by the seller's
+ * Transport.
  */
-public class SellerServer extends BaseServer {
+public class SellerServer implements FrameHandler {
 
 	// Global Variables that point to the same global variables that are used in the Seller object 
-    // that created this SellerServer. Also contains a SequenceMap to implement flooding control.
-	protected String peerID;
-	protected PeerIDParser idParser;
-	protected ArrayList<String> neighbors;
+    // that created this SellerServer, including the frame that identifies this seller. Also contains
+    // a DuplicateFilter to implement flooding control.
+	protected PeerId peerID;
+	protected Frame identity;
+	protected PeerTable peers;
+	protected Topology topology;
 	protected ItemStore itemStore;
-	protected SequenceMap seqMap;
+	protected DuplicateFilter duplicates;
+	protected FanOut fanOut;
+	protected Transport connections;
+	protected RandomWalk walks;
+	protected QueryRouter router;
 	
 	// Constructor method that initializes global variable from provided parameters as well as
-    // creates a new SequenceMap monitor for flooding control.
-	public SellerServer(int portNum, 
-		String peerID, 
-		ArrayList<String> neighbors, 
-		PeerIDParser idParser,
-		ItemStore itemStore) {
-		super(portNum);
+    // creates a new DuplicateFilter for flooding control and a RandomWalk that moves walkers on.
+	public SellerServer(PeerId peerID, 
+		Frame identity,
+		Topology topology, 
+		PeerTable peers,
+		ItemStore itemStore,
+		PeerConfig config,
+		FanOut fanOut,
+		Transport connections,
+		QueryRouter router) {
 		this.peerID = peerID;
-		this.neighbors = neighbors;
-		this.idParser = idParser;
+		this.identity = identity;
+		this.topology = topology;
+		this.peers = peers;
 		this.itemStore = itemStore;
-		this.seqMap = new SequenceMap();
+		this.duplicates = new DuplicateFilter(config.peerCount);
+		this.fanOut = fanOut;
+		this.connections = connections;
+		this.walks = new RandomWalk(identity, topology, peers, fanOut, connections, config);
+		this.router = router;
 	}
 	
-	// This implementation of the getServerThread returns a SellerRequestHandler thread that 
-    // handles an incoming lookup or adjacency message to this buyer. The client socket is
-    // used to create this handler thread.
+	// This implementation of the getRequestHandler returns a SellerRequestHandler that handles 
+    // an incoming lookup or adjacency frame to this seller. The frame and the client connection
+    // are used to create this handler.
 	@Override
-	public Thread getServerThread(Socket client) {
-		return new ServerRequestHandler(client, peerID, neighbors, idParser, itemStore, seqMap);
+	public Runnable getRequestHandler(Frame frame, ClientConnection client) {
+		return new ServerRequestHandler(frame, client, identity, topology, peers, itemStore, duplicates, connections, walks, router);
 	}
 	
 	/*
      * The SellerRequestHandler class uses the global objects provided by the Seller object to this
      * SellerServer to properly respond to incoming lookup and reply messages. Lookup messages are
      * automatically forwarded if they aren't requesting this seller's product, otherwise, this thread
-     * will attempt to reserve the item in the ItemStore and send a reply to the buyer.
+     * will attempt to reserve the item in the ItemStore and send an offer to the buyer. The buyer's
+     * later commit or decline message settles the reservation. Walkers are handled the same way,
+     * except that a walker that isn't stopped by this seller moves on to a random neighbor.
      */
-	private static class ServerRequestHandler extends Thread{
+	private static class ServerRequestHandler implements Runnable{
 		
 		// Global variables that include several global variables from the original SellerServer 
-        // object as well as the client socket for communication with the client.
-		private Socket client;
-		private String peerID;
-		private PeerIDParser idParser;
-		private ArrayList<String> neighbors;
+        // object as well as the frame and the client connection for communication with the client.
+		private Frame frame;
+		private ClientConnection client;
+		private Frame identity;
+		private PeerTable peers;
+		private Topology topology;
 		private ItemStore itemStore;
-		private SequenceMap seqMap;
+		private DuplicateFilter duplicates;
+		private Transport connections;
+		private RandomWalk walks;
+		private QueryRouter router;
 		
 		// Constructor method that assigns the provided parameters to their corresponding global
         // variables.
-		public ServerRequestHandler(Socket client,
-				String peerID, 
-				ArrayList<String> neighbors, 
-				PeerIDParser idParser,
+		public ServerRequestHandler(Frame frame,
+				ClientConnection client,
+				Frame identity, 
+				Topology topology, 
+				PeerTable peers,
 				ItemStore itemStore,
-				SequenceMap seqMap) {
+				DuplicateFilter duplicates,
+				Transport connections,
+				RandomWalk walks,
+				QueryRouter router) {
+			this.frame = frame;
 			this.client = client;
-			this.peerID = peerID;
-			this.idParser = idParser;
-			this.neighbors = neighbors;
+			this.identity = identity;
+			this.peers = peers;
+			this.topology = topology;
 			this.itemStore = itemStore;
-			this.seqMap = seqMap;
+			this.duplicates = duplicates;
+			this.connections = connections;
+			this.walks = walks;
+			this.router = router;
 		}
 		
-		// Run method that defines the execution of this thread.
+		// Run method that defines the handling of the frame.
 		public void run(){
 			
-			// Check to make sure the client socket is valid.
+			// Check to make sure the client connection is valid.
 			if(client != null){
 				
 				try{
-					// Initiate a BufferedReader to read the incoming messages from the client.
-					BufferedReader msgFromClient = new BufferedReader(
-			                new InputStreamReader(client.getInputStream()));
-					
-					// Read in the message header and the sourceID  of the message from the client
-					String header = msgFromClient.readLine();
-					String sourceID = msgFromClient.readLine();
-					
-					// Check if this message is an adjacency message, if so add the neighbor to 
-                    // this Buyer's neigbor list.
-					if(header.equals("adj")){
-						neighbors.add(sourceID);
+					// Check if this frame is an adjacency message, if so add the neighbor to 
+	                // this Seller's topology.
+					if(frame.getType() == Frame.ADJ){
+						topology.add(peers.intern(frame));
+						router.refreshSummaries();
 					}
 					
-					// Check if this message is a lookup message and handle it appropriately.
-					else if(header.charAt(0) == 'L'){
-						
-						// Extract the sequence number from the header.
-						int headerBreak1 = header.indexOf(':');
-						int headerBreak2 = header.indexOf('|');
-						int seqNum = Integer.parseInt(header.substring(headerBreak2 + 1, header.length()));
+					// Check if this frame is a lookup message and handle it appropriately.
+					else if(frame.getType() == Frame.LOOKUP){
 						
 						// Check if this lookup has already been seen by this seller
-						if(seqMap.updateSeqNum(idParser.getPeerIndex(sourceID), seqNum)){
+						if(duplicates.firstSeen(frame.getSourceIndex(), frame.getSeqNum())){
 							
-							// Check if the lookup request product matches this seller's product, if so send reply
-							if(itemStore.getItem().equals(header.substring(headerBreak1+1, headerBreak2)) &&
-									itemStore.reserveProduct()){
-								reply(sourceID);
+							// Check if the lookup request product matches this seller's product, if so send an offer
+							// and advertise this seller back along the lookup's path
+							if(itemStore.getItem().equals(ItemCatalog.getItemName(frame.getItem())) &&
+									itemStore.reserveProduct(frame.getSourceIndex(), frame.getSeqNum())){
+								offer(frame);
+								router.advertise(frame);
 							}
 							// Otherwise forward the lookup
 							else{
 								
-								// Extract hopcount
-								int hopcount = Integer.parseInt(header.substring(1, headerBreak1));
-								
-								// Decrement hopcount and if hops remain, forward to all neighbors
-								hopcount--;
+								// Decrement hopcount and if hops remain, route it to cached sellers or neighbors
+								int hopcount = frame.getHopcount() - 1;
 								if(hopcount > 0){
-									String nextHeader = "L" + hopcount + header.substring(headerBreak1, header.length());
-									forward(nextHeader, sourceID);
+									router.route(frame, hopcount);
 								}
 							}
 						}
 					}
+					
+					// Check if this frame is a walker, if so offer the product if it is the one requested
+					// and can be reserved, which stops the walker, and otherwise move the walker on.
+					else if(frame.getType() == Frame.WALK){
+						if(itemStore.getItem().equals(ItemCatalog.getItemName(frame.getItem())) &&
+								itemStore.reserveProduct(frame.getSourceIndex(), frame.getSeqNum())){
+							offer(frame);
+						}
+						else{
+							walks.step(frame);
+						}
+					}
+					
+					// Check if this frame is a buyer's direct request, if so offer the product if it is the
+					// one requested and can be reserved, and otherwise refuse the request.
+					else if(frame.getType() == Frame.DIRECT){
+						if(itemStore.getItem().equals(ItemCatalog.getItemName(frame.getItem())) &&
+								itemStore.reserveProduct(frame.getSourceIndex(), frame.getSeqNum())){
+							offer(frame);
+						}
+						else{
+							connections.send(peers.intern(frame), identity.derive(Frame.REFUSE, 0, frame.getItem(), frame.getSeqNum()));
+						}
+					}
+					
+					// Check if this frame is a seller's location passing back along a lookup's path, if
+					// so cache it and pass it on.
+					else if(frame.getType() == Frame.ADVERT){
+						router.relay(frame);
+					}
+					
+					// Check if this frame is a level of a neighbor's item summary, if so store it.
+					else if(frame.getType() == Frame.SUMMARY){
+						router.summarize(frame);
+					}
+					
+					// Check if this frame belongs to the Chord ring, if so hand it to the ring node.
+					else if(ChordNode.handles(frame.getType())){
+						router.receiveRing(frame);
+					}
+					
+					// Check if this frame is a buyer's decision on an offer, if so settle the reservation
+					// made for that buyer's lookup. A sale may have switched the product, which changes
+					// the summaries sent to the neighbors.
+					else if(frame.getType() == Frame.COMMIT || frame.getType() == Frame.DECLINE){
+						itemStore.collectReservation(frame.getType() == Frame.COMMIT, frame.getSourceIndex(), frame.getSeqNum());
+						router.setOwnItem(ItemCatalog.getItemId(itemStore.getItem()));
+					}
 				}
-				catch(IOException e){ 
-					e.printStackTrace();
-				}
+				catch(IOException e){ System.out.println(e.getMessage()); }
 			}
 			
 	
 		}
 		
-		// The reply message creates a socket connection with the buyer to negotiate a sale
-		// of the product. Based on the buyer's response, this seller will either remove an
-		// item from its reserved items or make the item available again.
-		private void reply(String sourceID){
+		// The offer method sends the buyer an offer frame for the lookup's item, sequence number and
+		// remaining hops over the buyer's connection and returns without waiting for the buyer's
+		// decision, which arrives later as a commit or decline frame. If the buyer cannot be reached
+		// the reservation is released right away.
+		private void offer(Frame lookup){
 			try{
-				// Create a socket connection with buyer
-				InetSocketAddress buyerAddr = idParser.getPeerSocket(sourceID);
-				Socket buyer = new Socket();
-				buyer.connect(buyerAddr);
-				
-				// Create an outgoing message channel with buyer and send response message
-				PrintWriter msgToBuyer = new PrintWriter(buyer.getOutputStream(), true);
-				msgToBuyer.println("R:" + itemStore.getItem());
-				msgToBuyer.println(peerID);
-				
-				// Create an incoming message channel with buyer
-				BufferedReader msgFromBuyer = new BufferedReader(
-		                new InputStreamReader(buyer.getInputStream()));
-				
-				// Read sale result and call the collectReservation method of the ItemStore
-				String sale = msgFromBuyer.readLine();
-				itemStore.collectReservation(sale.equals("BT"), idParser.getPeerIndex(sourceID));
-				
-				// Close the socket connection with the buyer
-				buyer.close();
+				connections.send(peers.intern(lookup), identity.derive(Frame.OFFER, lookup.getHopcount(), lookup.getItem(), lookup.getSeqNum()));
 			}
 			catch(IOException e){ 
 				System.out.println(e.getMessage()); 
+				itemStore.collectReservation(false, lookup.getSourceIndex(), lookup.getSeqNum());
 			}
 		}
 		
-		// The forward method takes a lookup message's header and sourceID and forwards it
-        // to every neighbor of this buyer.
-		private void forward(String header, String sourceID){
-			
-			// Store any non-existent neighbors
-			ArrayList<String> badNeighbors = new ArrayList<>();
-
-			// Determine if the peer that sent the lookup has a larger peer index
-			boolean bigSource = idParser.getPeerIndex(sourceID) > idParser.getPeerIndex(peerID);
-			
-			// Iterate through all neighbors
-			for(int i = 0; i < neighbors.size(); i++){
-				String neighborID = neighbors.get(i);
-				
-				// Determine if the neighbor has a larger peer index
-				boolean bigNeighbor = idParser.getPeerIndex(neighborID) > idParser.getPeerIndex(peerID);
-				
-				// Forward the lookup message if the neighbor is in the opposite direction in the network
-                // than the source of the message.
-				if(bigSource ^ bigNeighbor){
-					try{
-						// Create a socket connection to a neighbor
-						InetSocketAddress neighborAddr = idParser.getPeerSocket(neighborID);
-						Socket socket = new Socket();
-						socket.connect(neighborAddr);
-						
-						// Create an outgoing message channel with the neighbor and send the lookup message
-						PrintWriter msgToNeighbor = new PrintWriter(socket.getOutputStream(), true);
-						msgToNeighbor.println(header);
-						msgToNeighbor.println(sourceID);
-						
-						// Close the socket
-						socket.close();
-					}			
-					catch(IOException e){ 
-						System.out.println(e.getMessage()); 
-						badNeighbors.add(neighborID); //Identify non-existent neighbors
-					}
-				}
-				
-			}
-			// Remove non-existing neighbors
-			for(String badNeighbor : badNeighbors){
-				this.neighbors.remove(badNeighbor);
-			}
-			
-		}
-		
 	}
 
 
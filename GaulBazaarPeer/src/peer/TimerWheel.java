@@ -0,0 +1,138 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+// Import statements
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * The TimerWheel class is a hashed timer wheel that tells its Listener about ids whose deadline
+ * has passed. Deadlines are rounded up to whole ticks and every tick only looks at the one slot
+ * of the wheel the tick falls on, so scheduling costs the same no matter how many ids are
+ * waiting and all ids expiring on a tick are handed to the Listener in one batch. Ids are not
+ * cancelled; the Listener ignores ids it no longer knows about. The wheel only ticks while ids
+ * are waiting, so an idle wheel costs its scheduler nothing.
+ */
+public class TimerWheel {
+
+	/*
+	 * The Listener interface is implemented by the owner of the ids to reclaim expired ids.
+	 */
+	public interface Listener {
+		public void expired(List<Long> ids);
+	}
+
+	// Global variables
+	private Listener listener; // Reclaims expired ids
+	private long tickMillis; // Length of a tick in milliseconds
+	private List<List<Entry>> slots; // Ids waiting for their deadline by slot
+	private long currentTick; // Last tick that was processed
+	private int waiting; // Number of ids waiting for their deadline
+	private boolean ticking; // Whether the next tick is scheduled
+	private Clock clock; // Clock the deadlines are measured with
+	private ScheduledExecutorService ticker; // Advances the wheel every tick
+	private Runnable advancer; // Advances the wheel and schedules the next tick
+
+	// Constructor method that takes in the Listener, the length of a tick and the number of slots
+	// of the wheel, which is advanced on a thread of its own by the System time.
+	public TimerWheel(Listener listener, long tickMillis, int wheelSize) {
+		this(listener, tickMillis, wheelSize, null, Clock.SYSTEM);
+	}
+
+	// Constructor method that takes in the Listener, the length of a tick, the number of slots of
+	// the wheel, the scheduler that advances it, which may be shared with other wheels, and the
+	// Clock deadlines are measured with. A null scheduler gives the wheel a thread of its own.
+	public TimerWheel(Listener listener, long tickMillis, int wheelSize, ScheduledExecutorService scheduler, Clock clock) {
+		this.listener = listener;
+		this.tickMillis = Math.max(1, tickMillis);
+		this.slots = new ArrayList<>(wheelSize);
+		for(int i = 0; i < wheelSize; i++){
+			this.slots.add(new ArrayList<Entry>());
+		}
+		this.clock = clock;
+		this.currentTick = clock.millis() / this.tickMillis;
+		this.waiting = 0;
+		this.ticking = false;
+		this.ticker = scheduler != null ? scheduler : Executors.newSingleThreadScheduledExecutor(new ThreadFactory(){
+			public Thread newThread(Runnable task){
+				Thread thread = new Thread(task, "TimerWheel");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.advancer = new Runnable(){
+			public void run(){
+				advance();
+			}
+		};
+	}
+
+	// The schedule method adds an id that expires at the provided time of the wheel's Clock in
+	// milliseconds, and starts ticking if the wheel was idle. An idle wheel skips the ticks it
+	// missed.
+	public synchronized void schedule(long id, long expiresAt){
+		if(!ticking){
+			currentTick = Math.max(currentTick, clock.millis() / tickMillis);
+			ticking = true;
+			ticker.schedule(advancer, tickMillis, TimeUnit.MILLISECONDS);
+		}
+		long tick = Math.max(currentTick + 1, (expiresAt + tickMillis - 1) / tickMillis);
+		slots.get((int) (tick % slots.size())).add(new Entry(id, tick));
+		waiting++;
+	}
+
+	// The advance method processes every tick up to the current time and hands the ids that
+	// expired on them to the Listener. The next tick is scheduled while ids are still waiting.
+	private void advance(){
+		List<Long> expired = new ArrayList<>();
+		synchronized(this){
+			long now = clock.millis() / tickMillis;
+			while(currentTick < now){
+				currentTick++;
+				Iterator<Entry> entries = slots.get((int) (currentTick % slots.size())).iterator();
+				while(entries.hasNext()){
+					Entry entry = entries.next();
+					if(entry.tick <= currentTick){
+						expired.add(entry.id);
+						entries.remove();
+						waiting--;
+					}
+				}
+			}
+			if(waiting > 0){
+				ticker.schedule(advancer, tickMillis, TimeUnit.MILLISECONDS);
+			}
+			else{
+				ticking = false;
+			}
+		}
+		if(!expired.isEmpty()){
+			listener.expired(expired);
+		}
+	}
+
+	/*
+	 * The Entry class is an id waiting in a slot of the wheel together with its deadline tick.
+	 */
+	private static class Entry {
+
+		// Global variables
+		private long id; // The id that expires
+		private long tick; // The tick the id expires on
+
+		// Constructor method that takes in the id and its deadline tick.
+		public Entry(long id, long tick){
+			this.id = id;
+			this.tick = tick;
+		}
+
+	}
+
+}
@@ -0,0 +1,160 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+// Import statements
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * The Topology class holds a peer's neighbors as an immutable Snapshot. A Snapshot keeps the
+ * neighbors' interned PeerIds split into the neighbors with a lower peer index than this peer and
+ * those with a higher one, which are the two directions a lookup is forwarded in. Readers take
+ * the current Snapshot and walk its arrays without any lock. Adding or removing a neighbor
+ * copies the Snapshot and publishes the copy with a compare-and-set, so readers never see a
+ * Snapshot that is being changed.
+ */
+public class Topology {
+
+	// Global variables
+	private int index; // This peer's index
+	private boolean directional; // Whether lookups are only forwarded away from their source
+	private AtomicReference<Snapshot> current; // The published Snapshot
+
+	// Constructor method that takes in this peer's index, the PeerIds of the peer's initial
+	// neighbors and the forwarding rule of the overlay, and publishes the first Snapshot.
+	public Topology(int index, List<PeerId> neighbors, boolean directional) {
+		this.index = index;
+		this.directional = directional;
+		this.current = new AtomicReference<>(new Snapshot(new PeerId[0], new PeerId[0]));
+		for(PeerId neighbor : neighbors){
+			add(neighbor);
+		}
+	}
+
+	// Getter method for the current Snapshot
+	public Snapshot getSnapshot(){
+		return this.current.get();
+	}
+
+	// The getForwardTargets method returns the neighbors a lookup from the provided source that
+	// arrived from the provided previous hop is forwarded to. In a line overlay a lookup only
+	// travels away from its source, the neighbors in the opposite direction of the source's peer
+	// index. Any other overlay has no direction, so the lookup goes to every neighbor except the
+	// source and the previous hop, and duplicates are dropped by the receivers.
+	public PeerId[] getForwardTargets(int sourceIndex, int viaIndex){
+		Snapshot snapshot = this.current.get();
+		if(this.directional){
+			return sourceIndex > this.index ? snapshot.lower : snapshot.higher;
+		}
+		PeerId[] targets = snapshot.all;
+		for(PeerId record : snapshot.all){
+			if(record.getIndex() == sourceIndex || record.getIndex() == viaIndex){
+				targets = without(targets, record);
+			}
+		}
+		return targets;
+	}
+
+	// The add method publishes a Snapshot containing the provided peer. Returns false if the peer
+	// already is a neighbor.
+	public boolean add(PeerId record){
+		while(true){
+			Snapshot snapshot = this.current.get();
+			if(snapshot.contains(record)){
+				return false;
+			}
+			Snapshot updated;
+			if(record.getIndex() > this.index){
+				updated = new Snapshot(snapshot.lower, append(snapshot.higher, record));
+			}
+			else{
+				updated = new Snapshot(append(snapshot.lower, record), snapshot.higher);
+			}
+			if(this.current.compareAndSet(snapshot, updated)){
+				return true;
+			}
+		}
+	}
+
+	// The remove method publishes a Snapshot without the provided peer. Returns false if the peer
+	// wasn't a neighbor.
+	public boolean remove(PeerId peerID){
+		while(true){
+			Snapshot snapshot = this.current.get();
+			if(!snapshot.contains(peerID)){
+				return false;
+			}
+			Snapshot updated = new Snapshot(without(snapshot.lower, peerID), without(snapshot.higher, peerID));
+			if(this.current.compareAndSet(snapshot, updated)){
+				return true;
+			}
+		}
+	}
+
+	// The append method returns a copy of the records with one more record at the end.
+	private static PeerId[] append(PeerId[] records, PeerId record){
+		PeerId[] copy = Arrays.copyOf(records, records.length + 1);
+		copy[records.length] = record;
+		return copy;
+	}
+
+	// The without method returns a copy of the records without the provided peer.
+	private static PeerId[] without(PeerId[] records, PeerId peerID){
+		PeerId[] copy = new PeerId[records.length];
+		int count = 0;
+		for(PeerId record : records){
+			if(!record.equals(peerID)){
+				copy[count++] = record;
+			}
+		}
+		return Arrays.copyOf(copy, count);
+	}
+
+	/*
+	 * The Snapshot class is an immutable view of a peer's neighbors split by direction. Its arrays
+	 * must not be modified by callers.
+	 */
+	public static class Snapshot {
+
+		// Global variables
+		private final PeerId[] lower; // Neighbors with a lower peer index than this peer
+		private final PeerId[] higher; // Neighbors with a higher peer index than this peer
+		private final PeerId[] all; // Every neighbor, lower ones first
+
+		// Constructor method that takes in the neighbors of both directions.
+		private Snapshot(PeerId[] lower, PeerId[] higher){
+			this.lower = lower;
+			this.higher = higher;
+			this.all = Arrays.copyOf(lower, lower.length + higher.length);
+			System.arraycopy(higher, 0, this.all, lower.length, higher.length);
+		}
+
+		// The contains method returns true if the provided peer is a neighbor.
+		public boolean contains(PeerId peerID){
+			for(PeerId record : all){
+				if(record.equals(peerID)){
+					return true;
+				}
+			}
+			return false;
+		}
+
+		// Getter methods for the neighbors with a lower and higher peer index and for all of them
+		public PeerId[] getLower(){
+			return this.lower;
+		}
+
+		public PeerId[] getHigher(){
+			return this.higher;
+		}
+
+		public PeerId[] getAll(){
+			return this.all;
+		}
+
+	}
+
+}
@@ -0,0 +1,27 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+// Import statements
+import java.io.IOException;
+
+/*
+ * The Transport interface carries frames between peers, so that buyers and sellers do not know
+ * if their peers are reached over TCP connections, as with the ConnectionManager, or live in the
+ * same process, as with a MemoryNetwork. A peer sends its frames through its Transport and has
+ * the frames sent to it handed to a FrameHandler.
+ */
+public interface Transport {
+
+	// Sends a single frame to a peer, throws an exception if the peer cannot be reached
+	public void send(PeerId peerID, Frame frame) throws IOException;
+
+	// Forgets a peer that is no longer a neighbor, a send still in progress to it fails
+	public void remove(PeerId peerID);
+
+	// Hands every frame sent to the provided peer to the FrameHandler. Depending on the transport
+	// this serves frames on the calling thread until serving fails or returns right away.
+	public void serve(PeerId peerID, FrameHandler handler, PeerConfig config) throws IOException;
+
+}
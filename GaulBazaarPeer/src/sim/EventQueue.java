@@ -0,0 +1,198 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package sim;
+
+// Import statements
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import peer.Clock;
+
+/*
+ * The EventQueue class is the engine of a discrete-event simulation. Events are tasks that are
+ * due at a time of the queue's virtual clock and are kept in a priority queue ordered by that
+ * time. Running the queue takes the earliest event, moves the clock forward to its time and runs
+ * it on the calling thread, so a simulation takes no longer than its events do. The queue is the
+ * Clock of the simulated peers it runs. Every event belongs to the peer it runs for, and events
+ * due at the same time are ordered by the peer that scheduled them and the number of events that
+ * peer scheduled before, which doesn't depend on how the peers are split among queues. A peer's
+ * events therefore run in the same order whether all peers share one queue or every partition
+ * of a Simulation has a queue of its own. Events for peers of another queue are posted to that
+ * queue's lock-free mailbox and taken into its priority queue when the Simulation lets it.
+ */
+public class EventQueue implements Clock {
+
+	// Global variables
+	private PriorityQueue<Event> events; // Events that are due, earliest first
+	private ConcurrentLinkedQueue<Event> mailbox; // Events posted by other queues
+	private long[] scheduled; // Number of events scheduled by every peer, shared by the queues of a Simulation
+	private int current; // Index of the peer whose event is running, -1 for none
+	private long now; // Time of the virtual clock in milliseconds
+	private long run; // Number of events run
+
+	// Constructor method that takes in the scheduled event counters of every peer, which the
+	// queues of a Simulation share, and starts the virtual clock at 0.
+	EventQueue(long[] scheduled) {
+		this.events = new PriorityQueue<>();
+		this.mailbox = new ConcurrentLinkedQueue<>();
+		this.scheduled = scheduled;
+		this.current = -1;
+		this.now = 0;
+		this.run = 0;
+	}
+
+	// The enter method makes the peer with the provided index the one that schedules events
+	// outside of a running event, while the peer is created. -1 leaves no peer current.
+	public void enter(int peerIndex){
+		this.current = peerIndex;
+	}
+
+	// The at method schedules a task of the current peer at the provided time of the virtual
+	// clock, a time that has passed already runs the task at the current time. Returns the event,
+	// which can be cancelled until it runs.
+	public Event at(long time, Runnable task){
+		Event event = newEvent(Math.max(time, now), current, task);
+		events.add(event);
+		return event;
+	}
+
+	// The after method schedules a task of the current peer after the provided delay in
+	// milliseconds.
+	public Event after(long delay, Runnable task){
+		return at(now + delay, task);
+	}
+
+	// The send method schedules a task for the peer with the provided index after the provided
+	// delay on the queue that runs that peer. An event for another queue is posted to its
+	// mailbox, its delay must be at least the lookahead of the Simulation.
+	public void send(long delay, int target, EventQueue destination, Runnable task){
+		Event event = newEvent(now + delay, target, task);
+		if(destination == this){
+			events.add(event);
+		}
+		else{
+			destination.mailbox.add(event);
+		}
+	}
+
+	// The newEvent method creates an event of the target peer that is ordered after every event
+	// the current peer scheduled before.
+	private Event newEvent(long time, int target, Runnable task){
+		int creator = current + 1;
+		return new Event(time, current, scheduled[creator]++, target, task);
+	}
+
+	// The receive method takes the events posted to the mailbox into the priority queue. Called
+	// by the Simulation while no queue is running.
+	void receive(){
+		Event event = mailbox.poll();
+		while(event != null){
+			events.add(event);
+			event = mailbox.poll();
+		}
+	}
+
+	// The nextTime method returns the time of the earliest event that is due, or Long.MAX_VALUE
+	// if no event is left. Cancelled events at the head of the queue are dropped.
+	long nextTime(){
+		while(!events.isEmpty() && events.peek().cancelled){
+			events.poll();
+		}
+		return events.isEmpty() ? Long.MAX_VALUE : events.peek().time;
+	}
+
+	// The run method runs the events in order until no event is left or the next event is due
+	// after the provided time, and leaves the clock at that time. Returns the number of events
+	// that were run.
+	public long run(long until){
+		long before = run;
+		while(!events.isEmpty() && events.peek().time <= until){
+			Event event = events.poll();
+			if(event.cancelled){
+				continue;
+			}
+			now = event.time;
+			current = event.target;
+			run++;
+			try{
+				event.task.run();
+			}
+			catch(RuntimeException e){ e.printStackTrace(); }
+		}
+		current = -1;
+		now = Math.max(now, until);
+		return run - before;
+	}
+
+	// Returns the time of the virtual clock
+	public long millis(){
+		return this.now;
+	}
+
+	// Returns the time of the virtual clock in nanoseconds
+	public long nanos(){
+		return this.now * 1000000;
+	}
+
+	// Getter methods for the number of events run and the number of events that are due
+	public long getRun(){
+		return this.run;
+	}
+
+	public int getPending(){
+		return this.events.size() + this.mailbox.size();
+	}
+
+	/*
+	 * The Event class is a task that is due at a time of the virtual clock.
+	 */
+	public static class Event implements Comparable<Event> {
+
+		// Global variables
+		private final long time; // Time the event is due at in milliseconds
+		private final int creator; // Index of the peer that scheduled the event, -1 for none
+		private final long order; // Number of events the creator scheduled before this one
+		private final int target; // Index of the peer the event runs for, -1 for none
+		private final Runnable task; // The task run at that time
+		private boolean cancelled; // Set if the event shouldn't run
+
+		// Constructor method that takes in the time, creator, order, target and task of the event.
+		private Event(long time, int creator, long order, int target, Runnable task){
+			this.time = time;
+			this.creator = creator;
+			this.order = order;
+			this.target = target;
+			this.task = task;
+			this.cancelled = false;
+		}
+
+		// The cancel method keeps the event from running, it is dropped once it is due.
+		public void cancel(){
+			this.cancelled = true;
+		}
+
+		// Getter methods for the time the event is due at and whether it was cancelled
+		public long getTime(){
+			return this.time;
+		}
+
+		public boolean isCancelled(){
+			return this.cancelled;
+		}
+
+		// Events are ordered by their time, then by their creator and the order the creator
+		// scheduled them in
+		public int compareTo(Event other){
+			if(this.time != other.time){
+				return Long.compare(this.time, other.time);
+			}
+			if(this.creator != other.creator){
+				return Integer.compare(this.creator, other.creator);
+			}
+			return Long.compare(this.order, other.order);
+		}
+
+	}
+
+}
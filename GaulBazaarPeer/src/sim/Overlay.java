@@ -0,0 +1,114 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package sim;
+
+// Import statements
+import java.util.Arrays;
+import java.util.Random;
+
+/*
+ * The Overlay class links the peers of a simulation, since simulated peers don't register with
+ * the Registry. The peers are placed on a ring and linked with the peers within half the degree
+ * on each side, and every peer adds a shortcut to a random peer with the shortcut probability, as
+ * in a Newman-Watts small-world graph. The ring keeps the overlay connected and the shortcuts
+ * bring its diameter down to about the logarithm of the number of peers. The default hopcount of
+ * the lookups is estimated with two breadth-first searches, since measuring the exact diameter
+ * takes a search from every peer.
+ */
+public class Overlay {
+
+	// Constructor method that takes no parameters.
+	public Overlay() {}
+
+	// The build method returns the neighbor indices of every peer of an overlay of n peers with
+	// the provided degree and shortcut probability, drawing the shortcuts with the provided
+	// Random. Neighbor indices are in ascending order.
+	public static int[][] build(int n, int degree, double shortcuts, Random rand){
+		int radius = Math.max(1, Math.min(degree / 2, (n - 1) / 2));
+		int[][] adjacency = new int[n][];
+		int[] counts = new int[n];
+		for(int i = 0; i < n; i++){
+			adjacency[i] = new int[2 * radius + 2];
+		}
+
+		// Link every peer with the peers within the radius on both sides of the ring
+		for(int i = 0; i < n; i++){
+			for(int k = 1; k <= radius; k++){
+				link(adjacency, counts, i, (i + k) % n);
+			}
+		}
+
+		// Add a shortcut from every peer with the shortcut probability
+		for(int i = 0; i < n; i++){
+			if(rand.nextDouble() < shortcuts){
+				link(adjacency, counts, i, rand.nextInt(n));
+			}
+		}
+
+		// Trim the neighbor lists and sort them
+		for(int i = 0; i < n; i++){
+			adjacency[i] = Arrays.copyOf(adjacency[i], counts[i]);
+			Arrays.sort(adjacency[i]);
+		}
+		return adjacency;
+	}
+
+	// The link method links two peers unless they are the same peer or already linked, growing
+	// their neighbor lists if needed.
+	private static void link(int[][] adjacency, int[] counts, int a, int b){
+		if(a == b){
+			return;
+		}
+		for(int i = 0; i < counts[a]; i++){
+			if(adjacency[a][i] == b){
+				return;
+			}
+		}
+		add(adjacency, counts, a, b);
+		add(adjacency, counts, b, a);
+	}
+
+	// The add method appends a neighbor to a peer's neighbor list.
+	private static void add(int[][] adjacency, int[] counts, int peer, int neighbor){
+		if(counts[peer] == adjacency[peer].length){
+			adjacency[peer] = Arrays.copyOf(adjacency[peer], adjacency[peer].length * 2);
+		}
+		adjacency[peer][counts[peer]++] = neighbor;
+	}
+
+	// The hopcount method estimates the diameter of an overlay with a breadth-first search from
+	// peer 0 and another from the peer furthest from it. The estimate is never above the
+	// diameter and is usually equal to it.
+	public static int hopcount(int[][] adjacency){
+		if(adjacency.length == 0){
+			return 0;
+		}
+		int[] hops = new int[adjacency.length];
+		int far = search(adjacency, 0, hops);
+		far = search(adjacency, far, hops);
+		return Math.max(1, hops[far]);
+	}
+
+	// The search method runs a breadth-first search from the source peer, filling in the hops to
+	// every peer, and returns the peer furthest from it.
+	private static int search(int[][] adjacency, int source, int[] hops){
+		Arrays.fill(hops, -1);
+		int[] queue = new int[adjacency.length];
+		int head = 0;
+		int tail = 0;
+		hops[source] = 0;
+		queue[tail++] = source;
+		while(head < tail){
+			int peer = queue[head++];
+			for(int neighbor : adjacency[peer]){
+				if(hops[neighbor] < 0){
+					hops[neighbor] = hops[peer] + 1;
+					queue[tail++] = neighbor;
+				}
+			}
+		}
+		return queue[tail - 1];
+	}
+
+}
@@ -0,0 +1,137 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package sim;
+
+// Import statements
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import peer.ClientConnection;
+import peer.Frame;
+import peer.FrameHandler;
+import peer.PeerConfig;
+import peer.PeerId;
+import peer.Transport;
+
+/*
+ * The SimNetwork class connects the peers of a Simulation over their virtual clocks. Every peer
+ * gets a Transport from the network and serves its frames by attaching its FrameHandler. A frame
+ * sent to a peer is not encoded; its delivery is scheduled after the network's link delay as an
+ * event of the destination on the EventQueue of the destination's partition, and the event runs
+ * the destination's request handler for it on that partition's thread. The link delay is the
+ * Simulation's lookahead. Sending never fails, a frame for a peer that isn't attached when it
+ * arrives is lost. Peers are attached while the Simulation is set up, before it runs.
+ */
+public class SimNetwork {
+
+	// Global variables
+	private Simulation simulation; // Runs the deliveries
+	private long linkDelay; // Time in milliseconds a frame takes to reach its destination
+	private Map<PeerId, FrameHandler> handlers; // Handlers of the attached peers
+	private AtomicLong delivered; // Frames handed to a handler
+	private AtomicLong lost; // Frames whose destination wasn't attached
+
+	// Constructor method that takes in the Simulation the deliveries are scheduled on, whose
+	// lookahead is the delay of every link.
+	public SimNetwork(Simulation simulation) {
+		this.simulation = simulation;
+		this.linkDelay = simulation.getLookahead();
+		this.handlers = new HashMap<>();
+		this.delivered = new AtomicLong();
+		this.lost = new AtomicLong();
+	}
+
+	// The newTransport method returns the Transport a simulated peer sends through.
+	public Transport newTransport(PeerId peerID){
+		return new Endpoint(peerID);
+	}
+
+	// Getter methods for the number of frames delivered and lost
+	public long getDelivered(){
+		return this.delivered.get();
+	}
+
+	public long getLost(){
+		return this.lost.get();
+	}
+
+	// The deliver method schedules the delivery of a frame from the source to its destination
+	// after the link delay.
+	private void deliver(final PeerId source, final PeerId destination, final Frame frame){
+		EventQueue events = simulation.getQueue(source.getIndex());
+		events.send(linkDelay, destination.getIndex(), simulation.getQueue(destination.getIndex()), new Runnable(){
+			public void run(){
+				FrameHandler handler = handlers.get(destination);
+				if(handler == null){
+					lost.incrementAndGet();
+					return;
+				}
+				delivered.incrementAndGet();
+				handler.getRequestHandler(frame, new Link(source, destination)).run();
+			}
+		});
+	}
+
+	/*
+	 * The Endpoint class is the Transport of a single peer in the network.
+	 */
+	private class Endpoint implements Transport {
+
+		// Global variables
+		private PeerId peerID; // The peer sending through this endpoint
+
+		// Constructor method that takes in the peer sending through this endpoint.
+		public Endpoint(PeerId peerID){
+			this.peerID = peerID;
+		}
+
+		// Sends a frame to a peer in the network
+		public void send(PeerId destination, Frame frame){
+			deliver(peerID, destination, frame);
+		}
+
+		// Nothing is kept per peer, so there is nothing to forget
+		public void remove(PeerId destination){}
+
+		// Attaches the handler of the peer and returns right away
+		public void serve(PeerId served, FrameHandler handler, PeerConfig config){
+			handlers.put(served, handler);
+		}
+
+	}
+
+	/*
+	 * The Link class stands in for the connection a frame arrived over, answers go back through
+	 * the network to the peer that sent the frame.
+	 */
+	private class Link implements ClientConnection {
+
+		// Global variables
+		private PeerId source; // The peer that sent the frame
+		private PeerId destination; // The peer that received the frame
+
+		// Constructor method that takes in the sender and receiver of the frame.
+		public Link(PeerId source, PeerId destination){
+			this.source = source;
+			this.destination = destination;
+		}
+
+		// Sends a frame back to the sender
+		public void send(Frame frame){
+			deliver(destination, source, frame);
+		}
+
+		// Getter method for the sender's address
+		public InetSocketAddress getRemoteAddress(){
+			return source.getAddress();
+		}
+
+		// Nothing to close
+		public void close(){}
+
+	}
+
+}
@@ -0,0 +1,161 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package sim;
+
+// Import statements
+import java.util.Random;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+/*
+ * The Simulation class runs a discrete-event simulation of a number of peers, either on a single
+ * EventQueue or as a conservative parallel simulation. In parallel, the peer index space is split
+ * into contiguous partitions, one per thread, and every partition is a logical process with an
+ * EventQueue of its own that runs the events of its peers. Peers of different partitions only
+ * reach each other through frames, which take at least the lookahead, the smallest link delay,
+ * to arrive. The partitions therefore advance in windows as long as the lookahead: within a
+ * window every partition runs its events without waiting for the others, frames crossing into
+ * another partition are posted to its mailbox and can only be due after the window, and between
+ * windows the partitions meet at a barrier where the mailboxes are emptied and the next window
+ * starts at the earliest event of any partition. Since events are ordered by the peer that
+ * scheduled them, every peer runs the same events in the same order as on a single queue, so a
+ * parallel run gives the same results as a sequential one with the same seed.
+ */
+public class Simulation {
+
+	// Global variables
+	private int peerCount; // Number of simulated peers
+	private long lookahead; // Smallest delay in milliseconds of an event sent to another partition
+	private EventQueue[] partitions; // Queue of every partition
+	private Random rand; // Random choices of the simulation itself, such as the overlay's links
+	private long windowEnd; // Last time of the current window
+	private boolean finished; // Set once no event is due before the end of the run
+	private long windows; // Number of windows run
+
+	// Constructor method that takes in the number of peers, the number of partitions, the
+	// lookahead in milliseconds and the seed of the simulation's random choices.
+	public Simulation(int peerCount, int partitions, long lookahead, long seed) {
+		this.peerCount = Math.max(1, peerCount);
+		this.lookahead = Math.max(1, lookahead);
+		this.partitions = new EventQueue[Math.max(1, Math.min(partitions, this.peerCount))];
+		long[] scheduled = new long[this.peerCount + 1];
+		for(int i = 0; i < this.partitions.length; i++){
+			this.partitions[i] = new EventQueue(scheduled);
+		}
+		this.rand = new Random(seed);
+		this.windows = 0;
+	}
+
+	// The partitionOf method returns the partition of the peer with the provided index, the
+	// peers of a partition have consecutive indices.
+	public int partitionOf(int peerIndex){
+		return (int) ((long) peerIndex * partitions.length / peerCount);
+	}
+
+	// The getQueue method returns the EventQueue that runs the peer with the provided index.
+	public EventQueue getQueue(int peerIndex){
+		return partitions[partitionOf(peerIndex)];
+	}
+
+	// Getter methods for the number of partitions, the EventQueue of a partition, the
+	// simulation's Random, the lookahead and the number of windows run
+	public int getPartitions(){
+		return this.partitions.length;
+	}
+
+	public EventQueue getPartition(int partition){
+		return this.partitions[partition];
+	}
+
+	public Random getRandom(){
+		return this.rand;
+	}
+
+	public long getLookahead(){
+		return this.lookahead;
+	}
+
+	public long getWindows(){
+		return this.windows;
+	}
+
+	// The run method runs every event due up to the provided time and returns the number of
+	// events run. A single partition runs on the calling thread, otherwise every partition runs
+	// on a thread of its own and the calling thread waits for them.
+	public long run(final long until){
+		long before = getRun();
+		if(partitions.length == 1){
+			partitions[0].receive();
+			partitions[0].run(until);
+			return getRun() - before;
+		}
+
+		// Plan the first window, the barrier plans every following one
+		finished = false;
+		nextWindow(until);
+		final CyclicBarrier barrier = new CyclicBarrier(partitions.length, new Runnable(){
+			public void run(){
+				nextWindow(until);
+			}
+		});
+
+		// Run the windows of every partition on its own thread
+		Thread[] workers = new Thread[partitions.length];
+		for(int i = 0; i < partitions.length; i++){
+			final EventQueue partition = partitions[i];
+			workers[i] = new Thread(new Runnable(){
+				public void run(){
+					try{
+						while(!finished){
+							partition.run(windowEnd);
+							barrier.await();
+						}
+					}
+					catch(InterruptedException | BrokenBarrierException e){ System.out.println(e.getMessage()); }
+				}
+			}, "Partition-" + i);
+			workers[i].start();
+		}
+		for(Thread worker : workers){
+			try{
+				worker.join();
+			}
+			catch(InterruptedException e){ Thread.currentThread().interrupt(); }
+		}
+
+		// Move the clock of every partition to the end of the run
+		for(EventQueue partition : partitions){
+			partition.run(until);
+		}
+		return getRun() - before;
+	}
+
+	// The nextWindow method empties the mailboxes of every partition and starts the next window
+	// at the earliest event of any partition, or finishes the run if that event is due after
+	// the provided end. Runs while no partition is running.
+	private void nextWindow(long until){
+		long next = Long.MAX_VALUE;
+		for(EventQueue partition : partitions){
+			partition.receive();
+			next = Math.min(next, partition.nextTime());
+		}
+		if(next > until){
+			finished = true;
+		}
+		else{
+			windowEnd = Math.min(until, next + lookahead - 1);
+			windows++;
+		}
+	}
+
+	// The getRun method returns the number of events run by every partition.
+	public long getRun(){
+		long run = 0;
+		for(EventQueue partition : partitions){
+			run += partition.getRun();
+		}
+		return run;
+	}
+
+}
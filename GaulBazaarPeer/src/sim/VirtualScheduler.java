@@ -0,0 +1,211 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package sim;
+
+// Import statements
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * The VirtualScheduler class is a ScheduledExecutorService that schedules its tasks as events of
+ * an EventQueue instead of running them on threads. It is handed to the simulated peers as the
+ * scheduler of their timers, so the deadlines of requests, the lease timers of sellers and every
+ * other delayed task run on the virtual clock. Tasks handed to execute run as events at the
+ * current time, after the event that hands them over. Periodic tasks are scheduled again each
+ * time they run. Since the queue runs on a single thread, a task's result can only be read once
+ * the task has run; nothing ever waits for it.
+ */
+public class VirtualScheduler extends AbstractExecutorService implements ScheduledExecutorService {
+
+	// Global variables
+	private EventQueue events; // Runs the scheduled tasks
+	private boolean shutdown; // Set once the scheduler was shut down
+
+	// Constructor method that takes in the EventQueue the tasks are scheduled on.
+	public VirtualScheduler(EventQueue events) {
+		this.events = events;
+		this.shutdown = false;
+	}
+
+	// Runs the task at the current time of the virtual clock
+	public void execute(Runnable task){
+		checkShutdown();
+		events.after(0, task);
+	}
+
+	// Runs the task once after the delay
+	public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit){
+		return schedule(Executors.callable(task), delay, unit);
+	}
+
+	// Runs the callable once after the delay
+	public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit){
+		checkShutdown();
+		VirtualFuture<V> future = new VirtualFuture<>(callable, 0);
+		future.start(unit.toMillis(delay));
+		return future;
+	}
+
+	// Runs the task after the initial delay and then once every period, measured from the time
+	// each run was due
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit){
+		return schedulePeriodic(task, initialDelay, period, unit);
+	}
+
+	// Runs the task after the initial delay and then again after the delay following each run,
+	// which is the same as a fixed rate since a run takes no virtual time
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long initialDelay, long delay, TimeUnit unit){
+		return schedulePeriodic(task, initialDelay, delay, unit);
+	}
+
+	// The schedulePeriodic method schedules the first run of a periodic task.
+	private ScheduledFuture<?> schedulePeriodic(Runnable task, long initialDelay, long period, TimeUnit unit){
+		checkShutdown();
+		if(period <= 0){
+			throw new IllegalArgumentException("Period must be positive");
+		}
+		VirtualFuture<Object> future = new VirtualFuture<>(Executors.callable(task), Math.max(1, unit.toMillis(period)));
+		future.start(unit.toMillis(initialDelay));
+		return future;
+	}
+
+	// The checkShutdown method turns tasks away once the scheduler was shut down.
+	private void checkShutdown(){
+		if(shutdown){
+			throw new RejectedExecutionException("Scheduler was shut down");
+		}
+	}
+
+	// Shutting down turns later tasks away, tasks that are already scheduled still run
+	public void shutdown(){
+		this.shutdown = true;
+	}
+
+	public List<Runnable> shutdownNow(){
+		this.shutdown = true;
+		return Collections.emptyList();
+	}
+
+	public boolean isShutdown(){
+		return this.shutdown;
+	}
+
+	public boolean isTerminated(){
+		return this.shutdown && events.getPending() == 0;
+	}
+
+	// Nothing can be waited for on the thread that runs the events
+	public boolean awaitTermination(long timeout, TimeUnit unit){
+		return isTerminated();
+	}
+
+	/*
+	 * The VirtualFuture class is a task scheduled on the EventQueue. A periodic task schedules
+	 * its next run each time it runs, until it is cancelled or throws an exception.
+	 */
+	private class VirtualFuture<V> implements ScheduledFuture<V>, Runnable {
+
+		// Global variables
+		private Callable<V> callable; // The task
+		private long period; // Time in milliseconds between runs, 0 for a task that runs once
+		private EventQueue.Event next; // Event of the next run
+		private boolean done; // Set once the task ran for the last time or was cancelled
+		private boolean cancelled; // Set if the task was cancelled
+		private V result; // Result of a task that ran once
+		private Exception failure; // Exception the task threw
+
+		// Constructor method that takes in the task and its period.
+		public VirtualFuture(Callable<V> callable, long period){
+			this.callable = callable;
+			this.period = period;
+			this.done = false;
+			this.cancelled = false;
+		}
+
+		// The start method schedules the first run after the provided delay in milliseconds.
+		public void start(long delay){
+			this.next = events.after(Math.max(0, delay), this);
+		}
+
+		// Run method that runs the task and schedules the next run of a periodic task
+		public void run(){
+			if(done){
+				return;
+			}
+			try{
+				V value = callable.call();
+				if(period == 0){
+					result = value;
+					done = true;
+				}
+				else{
+					next = events.at(next.getTime() + period, this);
+				}
+			}
+			catch(Exception e){
+				failure = e;
+				done = true;
+				e.printStackTrace();
+			}
+		}
+
+		// Cancelling drops the next run of the task
+		public boolean cancel(boolean mayInterruptIfRunning){
+			if(done){
+				return false;
+			}
+			next.cancel();
+			cancelled = true;
+			done = true;
+			return true;
+		}
+
+		public boolean isCancelled(){
+			return this.cancelled;
+		}
+
+		public boolean isDone(){
+			return this.done;
+		}
+
+		// Returns the result of a task that ran, a task that hasn't run can't be waited for
+		public V get() throws ExecutionException{
+			if(cancelled){
+				throw new CancellationException();
+			}
+			if(failure != null){
+				throw new ExecutionException(failure);
+			}
+			if(!done){
+				throw new IllegalStateException("Task has not run yet");
+			}
+			return result;
+		}
+
+		public V get(long timeout, TimeUnit unit) throws ExecutionException{
+			return get();
+		}
+
+		// Time left until the next run on the virtual clock
+		public long getDelay(TimeUnit unit){
+			return unit.convert(next.getTime() - events.millis(), TimeUnit.MILLISECONDS);
+		}
+
+		public int compareTo(Delayed other){
+			return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+		}
+
+	}
+
+}
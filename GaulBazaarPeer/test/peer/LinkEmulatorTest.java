@@ -0,0 +1,158 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package peer;
+
+// Import statements
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import sim.EventQueue;
+import sim.SimNetwork;
+import sim.Simulation;
+import sim.VirtualScheduler;
+
+/*
+ * The LinkEmulatorTest class checks that the frames a peer forwards cross its emulated links, not
+ * only the frames it originates. Two buyers and a seller are linked in a line on a simulated
+ * network, 0 - 1 - 2, whose links take 5ms, and every peer's LinkModel adds a fixed delay on top.
+ * Lookups of buyer 0 reach the seller only when buyer 1 forwards them, so every forwarded lookup
+ * has to arrive at the seller no sooner than the network's and the emulated delay after it
+ * arrived at buyer 1. Run with the classes of the peer on the classpath, exits with status 1 if
+ * the check fails.
+ */
+public class LinkEmulatorTest {
+
+	// Global variables
+	private static final long NETWORK_DELAY = 5; // Delay of every link of the simulated network in milliseconds
+	private static final double EMULATED_DELAY = 50; // Delay the LinkModel adds to every frame in milliseconds
+	private static final long DURATION = 10000; // Simulated time the peers run for in milliseconds
+
+	// The main method runs the peers and checks the delay of every lookup buyer 1 forwarded.
+	public static void main(String[] args) throws IOException{
+		Simulation simulation = new Simulation(3, 1, NETWORK_DELAY, 1);
+		SimNetwork network = new SimNetwork(simulation);
+		EventQueue events = simulation.getQueue(0);
+		PeerConfig config = configure(events);
+		PeerTable peers = new PeerTable();
+		byte[] addr = InetAddress.getLoopbackAddress().getAddress();
+		for(int i = 0; i < 3; i++){
+			peers.intern(new Frame(Frame.PEER_ID, 0, 0, 0, i, 10251 + i, addr));
+		}
+
+		// Record when every lookup of buyer 0 reaches buyer 1 and when it is forwarded to the seller
+		Map<Integer, Long> arrivals = new HashMap<>();
+		Map<Integer, Long> forwards = new HashMap<>();
+		Transport forwarder = new Recorder(network.newTransport(peers.get(1)), events, arrivals, -1);
+		Transport seller = new Recorder(network.newTransport(peers.get(2)), events, forwards, 1);
+
+		events.enter(0);
+		new Buyer(peers.get(0), neighbors(peers, 1), peers, 2, "Peer0", config, network.newTransport(peers.get(0)));
+		events.enter(1);
+		new Buyer(peers.get(1), neighbors(peers, 0, 2), peers, 2, "Peer1", config, forwarder);
+		events.enter(2);
+		new Seller(peers.get(2), neighbors(peers, 1), peers, "Peer2sellerOutput.txt", config, seller);
+		events.enter(-1);
+		simulation.run(DURATION);
+
+		// Every forwarded lookup crossed two links of the network, the one to buyer 1 and the one
+		// to the seller, and two emulated links
+		int checked = 0;
+		long fastest = Long.MAX_VALUE;
+		for(Map.Entry<Integer, Long> forward : forwards.entrySet()){
+			Long arrival = arrivals.get(forward.getKey());
+			if(arrival != null){
+				fastest = Math.min(fastest, forward.getValue() - arrival);
+				checked++;
+			}
+		}
+		if(checked == 0){
+			System.out.println("FAILED: no lookup of buyer 0 was forwarded to the seller");
+			System.exit(1);
+		}
+		if(fastest < NETWORK_DELAY + EMULATED_DELAY){
+			System.out.println("FAILED: a forwarded lookup took " + fastest + "ms from buyer 1 to the seller, expected at least " +
+					(NETWORK_DELAY + (long) EMULATED_DELAY) + "ms");
+			System.exit(1);
+		}
+		System.out.println("OK: " + checked + " forwarded lookups, the fastest took " + fastest + "ms from buyer 1 to the seller");
+	}
+
+	// The configure method returns the run parameters of the peers, which run on the provided
+	// EventQueue as in the simulator but flood their lookups across links of a fixed delay.
+	private static PeerConfig configure(EventQueue events){
+		PeerConfig config = new PeerConfig();
+		config.executorMode = ExecutorMode.INLINE;
+		config.searchMode = SearchMode.FLOOD;
+		config.scheduler = new VirtualScheduler(events);
+		config.clock = events;
+		config.seed = 1;
+		config.eventDriven = true;
+		config.writeOutput = false;
+		config.purchases = Integer.MAX_VALUE;
+		config.directionalForwarding = false;
+		config.peerCount = 3;
+		config.linkModel = new LinkProfile(EMULATED_DELAY, 0, DelayDistribution.UNIFORM, 0, 0.0);
+		config.responseTimes = new ResponseTimes();
+		return config;
+	}
+
+	// The neighbors method returns the PeerIds of the provided peer indices.
+	private static ArrayList<PeerId> neighbors(PeerTable peers, int... indices){
+		ArrayList<PeerId> neighbors = new ArrayList<>(indices.length);
+		for(int index : indices){
+			neighbors.add(peers.get(index));
+		}
+		return neighbors;
+	}
+
+	/*
+	 * The Recorder class is a Transport that records the time every lookup of buyer 0 is handed
+	 * to its peer, by sequence number, and otherwise passes everything to the Transport it wraps.
+	 * If a via is provided only lookups last sent by that peer are recorded.
+	 */
+	private static class Recorder implements Transport {
+
+		// Global variables
+		private Transport transport; // The Transport that carries the frames
+		private EventQueue events; // The clock frames are timed by
+		private Map<Integer, Long> times; // Time every lookup was handed to the peer at
+		private int via; // Peer the recorded lookups were last sent by, -1 for any
+
+		// Constructor method that initializes global variables using provided parameters
+		public Recorder(Transport transport, EventQueue events, Map<Integer, Long> times, int via){
+			this.transport = transport;
+			this.events = events;
+			this.times = times;
+			this.via = via;
+		}
+
+		// Sends a frame through the wrapped Transport
+		public void send(PeerId peerID, Frame frame) throws IOException{
+			transport.send(peerID, frame);
+		}
+
+		// Forgets a peer in the wrapped Transport
+		public void remove(PeerId peerID){
+			transport.remove(peerID);
+		}
+
+		// Serves the peer's frames through the wrapped Transport, recording lookups as they arrive
+		public void serve(PeerId peerID, final FrameHandler handler, PeerConfig config) throws IOException{
+			transport.serve(peerID, new FrameHandler(){
+				public Runnable getRequestHandler(Frame frame, ClientConnection client){
+					if(frame.getType() == Frame.LOOKUP && frame.getSourceIndex() == 0 && (via < 0 || frame.getVia() == via) &&
+							!times.containsKey(frame.getSeqNum())){
+						times.put(frame.getSeqNum(), events.millis());
+					}
+					return handler.getRequestHandler(frame, client);
+				}
+			}, config);
+		}
+
+	}
+
+}
@@ -4,17 +4,22 @@
 package main;
 
 // Import statements
+import server.ExecutorMode;
+import server.ItemDirectory;
+import server.OverlayTopology;
 import server.PeerRegistry;
 import server.RegistryServer;
+import server.ServerMode;
+import server.SmallWorldOverlay;
 
 import java.io.IOException;
 import java.net.UnknownHostException;
 
 /*
- * Registry Main class, where the total number of peers (N) and the number of
- * neighbors for each peer (2*neighborRadius) is defined. The registry server will
- * provide each new peer with neighbors. This is only somewhat dynamic and assumes 
- * peers will stay online indefinitely.
+ * Registry Main class, where the total number of peers (N) and the overlay the peers
+ * are linked in is defined. The registry server will provide each new peer with neighbors
+ * and the overlay's diameter as the hopcount of its lookups. This is only somewhat dynamic
+ * and assumes peers will stay online indefinitely.
  */
 public class Main {
 	
@@ -26,12 +31,28 @@ public class Main {
 		int neighborRadius = 3;
 		int portStart = 10250;
 		
+		// Define the overlay the peers are linked in, one of LineOverlay(neighborRadius),
+		// RandomRegularOverlay(degree, seed), SmallWorldOverlay(degree, rewire, seed),
+		// ChordRingOverlay() or HypercubeOverlay()
+		OverlayTopology overlay = new SmallWorldOverlay(2 * neighborRadius, 0.2, System.currentTimeMillis());
+		
+		// Define how the RegistryServer serves its clients, either with a thread per connection
+		// or with a small number of selector event loop threads, and if its handlers run on
+		// platform threads or on virtual threads (Java 21 and later)
+		ServerMode serverMode = ServerMode.SELECTOR;
+		int eventLoopThreads = 2;
+		ExecutorMode executorMode = ExecutorMode.PLATFORM;
+		
 		// Create a new PeerRegistry monitor to store peer listening sockets in a peer index
-		PeerRegistry registry = new PeerRegistry(N, neighborRadius, portStart);
+		PeerRegistry registry = new PeerRegistry(N, overlay, portStart);
+		
+		// Create the ItemDirectory that sellers publish their items to and buyers query in the
+		// directory mode, split into shards that are locked separately
+		ItemDirectory directory = new ItemDirectory(16);
 		
 		// Create a new RegistryServer that is contacted by peers to receive their
-		// peerID and neighbors
-		RegistryServer regServer = new RegistryServer(portStart, registry, N);
+		// peerID and neighbors and to publish and query items in the directory mode
+		RegistryServer regServer = new RegistryServer(portStart, registry, directory, serverMode, eventLoopThreads, executorMode);
 		
 		// Activate the RegistryServer
 		try{
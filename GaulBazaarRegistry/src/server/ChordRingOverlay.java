@@ -0,0 +1,33 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package server;
+
+/*
+ * The ChordRingOverlay class places the peers on a ring and adds chords from every peer to the
+ * peers a power of two further around the ring. Every hop can halve the remaining distance
+ * around the ring, so the diameter grows with the logarithm of the number of peers.
+ */
+public class ChordRingOverlay implements OverlayTopology {
+
+	// Constructor method, the ring's chords are fixed by the number of peers.
+	public ChordRingOverlay() {}
+
+	// The build method links every peer with its successor and the chords 2, 4, 8 and so on
+	// peers ahead of it.
+	public int[][] build(int n){
+		OverlayLinks links = new OverlayLinks(n);
+		for(int i = 0; i < n; i++){
+			for(int step = 1; step < n; step <<= 1){
+				links.link(i, (i + step) % n);
+			}
+		}
+		return links.toArrays();
+	}
+
+	// Lookups are flooded
+	public boolean isDirectional(){
+		return false;
+	}
+
+}
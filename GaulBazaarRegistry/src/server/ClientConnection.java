@@ -0,0 +1,26 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package server;
+
+// Import statements
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/*
+ * The ClientConnection interface represents the server side of a connection that a client
+ * established with a BaseServer. Handlers use it to answer the client without knowing if the
+ * connection is served by its own thread or by a selector event loop.
+ */
+public interface ClientConnection {
+
+	// Sends a single frame to the client
+	public void send(Frame frame) throws IOException;
+
+	// Returns the socket address of the client
+	public InetSocketAddress getRemoteAddress();
+
+	// Closes the connection with the client
+	public void close();
+
+}
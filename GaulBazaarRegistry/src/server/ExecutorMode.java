@@ -0,0 +1,14 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package server;
+
+/*
+ * The ExecutorMode enum selects what kind of threads run a BaseServer's request handlers.
+ * PLATFORM uses ordinary operating system threads, VIRTUAL runs every handler on its own
+ * virtual thread so that handlers blocked on sockets or monitors cost almost nothing.
+ */
+public enum ExecutorMode {
+	PLATFORM,
+	VIRTUAL
+}
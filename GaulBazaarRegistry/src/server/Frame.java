@@ -0,0 +1,147 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package server;
+
+// Import statements
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+
+/*
+ * The Frame class is a single message of the binary wire protocol shared by peers and the
+ * registry. A frame carries a message type, a hopcount, an item id, a sequence number and the
+ * numeric index, listening port and raw IP address of the peer the message originates from,
+ * as well as the index of the peer that last sent it on, which is the source itself until the
+ * frame is forwarded. Frames are immutable so that a received frame can be forwarded by
+ * deriving a new one from it.
+ * A purchase is a two-phase exchange of separate frames: the seller's OFFER, followed by the
+ * buyer's COMMIT or DECLINE. Both carry the buyer's index and the lookup's sequence number,
+ * which together identify the request.
+ */
+public class Frame {
+
+	// Message types exchanged between peers
+	public static final byte ADJ = 1; // Adjacency announcement
+	public static final byte LOOKUP = 2; // Lookup for an item
+	public static final byte OFFER = 3; // Seller offers its reserved item in reply to a lookup
+	public static final byte COMMIT = 4; // Buyer chose the seller for the purchase
+	public static final byte DECLINE = 5; // Buyer did not choose the seller
+	public static final byte WALK = 6; // Random walker of a buyer's lookup, hopcount holds its remaining hops
+	public static final byte CHECK = 7; // Walker checks back with the buyer from the peer it reached
+	public static final byte ADVERT = 8; // Seller location sent back along a lookup's path, hopcount holds the lookup's source index
+	public static final byte DIRECT = 9; // Buyer asks the seller it last bought the item from directly
+	public static final byte REFUSE = 10; // Seller can't offer the item of a direct request
+	public static final byte SUMMARY = 11; // Level of a neighbor's item summary, item holds the level and hopcount its Bloom filter
+
+	// Message types exchanged between a peer and the registry
+	public static final byte REGISTER = 16; // Peer asks to join the network
+	public static final byte PEER_ID = 17; // Registry assigns the peer its index and port
+	public static final byte NEIGHBOR = 18; // Registry names one neighbor of the peer
+	public static final byte END = 19; // Registry is done, hopcount holds the default hopcount, item the forwarding rule and seqNum the number of peers
+	public static final byte TERMINATE = 20; // Registry is full
+	public static final byte PUBLISH = 21; // Seller publishes its item to the directory, hopcount is 0 if it sells nothing and seqNum holds the version
+	public static final byte QUERY = 22; // Buyer asks the directory for sellers of an item, hopcount holds the most sellers wanted
+	public static final byte LISTING = 23; // Directory names one seller of the queried item, the listings end with an END frame
+
+	// Message types of the Chord ring, whose node ids are peer indices
+	public static final byte FIND = 24; // Find the node responsible for the key in hopcount, item holds the hops taken
+	public static final byte FOUND = 25; // The source is responsible for the key in hopcount, item holds the hops the FIND took
+	public static final byte FETCH = 26; // Ask the responsible node for the providers of an item
+	public static final byte PROVIDERS = 27; // One provider of the fetched item is the source, item holds the number of providers
+	public static final byte PUT = 28; // Store a provider record of the source for an item at the responsible node
+	public static final byte DROP = 29; // Remove a provider record of the source for an item
+	public static final byte STABILIZE = 30; // Node asks its successor for the successor's predecessor
+	public static final byte PREDECESSOR = 31; // The source is the predecessor of the node asked
+	public static final byte NOTIFY = 32; // The source may be the predecessor of the node notified
+
+	// Forwarding rules carried by the item of an END frame
+	public static final int FORWARD_DIRECTIONAL = 0; // Forward a lookup only away from its source's peer index
+	public static final int FORWARD_FLOOD = 1; // Forward a lookup to every neighbor but its source
+
+	// Global variables
+	private byte type; // Message type
+	private int hopcount; // Remaining hops of a lookup
+	private int item; // Item id of the product
+	private int seqNum; // Sequence number of the source's lookup
+	private int via; // Peer index of the peer that last sent the frame
+	private int sourceIndex; // Peer index of the source
+	private int sourcePort; // Listening port of the source
+	private byte[] sourceAddr; // Raw IP address of the source, 4 or 16 bytes, or empty
+
+	// Constructor method that takes in every field of a frame sent by its source.
+	public Frame(byte type, int hopcount, int item, int seqNum, int sourceIndex, int sourcePort, byte[] sourceAddr) {
+		this(type, hopcount, item, seqNum, sourceIndex, sourceIndex, sourcePort, sourceAddr);
+	}
+
+	// Constructor method that takes in every field of the frame, including the peer that last
+	// sent it.
+	public Frame(byte type, int hopcount, int item, int seqNum, int via, int sourceIndex, int sourcePort, byte[] sourceAddr) {
+		this.type = type;
+		this.hopcount = hopcount;
+		this.item = item;
+		this.seqNum = seqNum;
+		this.via = via;
+		this.sourceIndex = sourceIndex;
+		this.sourcePort = sourcePort;
+		this.sourceAddr = sourceAddr;
+	}
+
+	// The derive method returns a frame with the same source as this frame and the provided
+	// message fields. Peers keep a frame describing themselves to derive outgoing frames from.
+	public Frame derive(byte type, int hopcount, int item, int seqNum){
+		return new Frame(type, hopcount, item, seqNum, sourceIndex, sourcePort, sourceAddr);
+	}
+
+	// The withHopcount method returns a copy of this frame with a different hopcount, which is
+	// used when forwarding a lookup.
+	public Frame withHopcount(int hopcount){
+		return new Frame(type, hopcount, item, seqNum, via, sourceIndex, sourcePort, sourceAddr);
+	}
+
+	// The withVia method returns a copy of this frame last sent by the peer with the provided
+	// index, which is used when forwarding a lookup.
+	public Frame withVia(int via){
+		return new Frame(type, hopcount, item, seqNum, via, sourceIndex, sourcePort, sourceAddr);
+	}
+
+	// The getSourceAddress method returns the listening socket address of the source. The raw
+	// IP address is used as is, so no name resolution takes place.
+	public InetSocketAddress getSourceAddress() throws UnknownHostException{
+		return new InetSocketAddress(InetAddress.getByAddress(sourceAddr), sourcePort);
+	}
+
+	// Getter methods for the fields of the frame
+	public byte getType(){
+		return this.type;
+	}
+
+	public int getHopcount(){
+		return this.hopcount;
+	}
+
+	public int getItem(){
+		return this.item;
+	}
+
+	public int getSeqNum(){
+		return this.seqNum;
+	}
+
+	public int getVia(){
+		return this.via;
+	}
+
+	public int getSourceIndex(){
+		return this.sourceIndex;
+	}
+
+	public int getSourcePort(){
+		return this.sourcePort;
+	}
+
+	public byte[] getSourceAddr(){
+		return this.sourceAddr;
+	}
+
+}
@@ -0,0 +1,120 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package server;
+
+// Import statements
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/*
+ * The FrameCodec class converts Frames to and from their binary wire format. Every frame is
+ * preceded by a two byte length so that a reader knows when a whole frame has arrived:
+ *
+ *   length    2 bytes  number of bytes that follow
+ *   version   1 byte   protocol version, frames of another version are rejected
+ *   type      1 byte   message type
+ *   hopcount  4 bytes
+ *   item      1 byte   item id
+ *   seqNum    4 bytes
+ *   via       4 bytes  peer index of the peer that last sent the frame
+ *   source    4 bytes  peer index of the source
+ *   port      2 bytes  listening port of the source
+ *   addrLen   1 byte   length of the source IP address, 0, 4 or 16
+ *   addr      addrLen bytes
+ *
+ * A lookup from an IPv4 peer takes 28 bytes on the wire. Decoding reads only numbers and the
+ * raw address bytes, no strings are created.
+ */
+public class FrameCodec {
+
+	// Protocol version written into and expected from every frame
+	public static final int VERSION = 2;
+
+	// Largest frame body that is accepted from a peer
+	public static final int MAX_FRAME_LENGTH = 1024;
+
+	// Number of bytes of a frame body that precede the source address
+	private static final int FIXED_LENGTH = 22;
+
+	// Constructor method that takes no parameters.
+	public FrameCodec() {}
+
+	// The encodedLength method returns the number of bytes of a frame's wire format, including
+	// its length prefix.
+	public static int encodedLength(Frame frame){
+		return 2 + FIXED_LENGTH + frame.getSourceAddr().length;
+	}
+
+	// The encode method returns the wire format of a frame, including its length prefix.
+	public static byte[] encode(Frame frame){
+		byte[] addr = frame.getSourceAddr();
+		ByteBuffer buffer = ByteBuffer.allocate(encodedLength(frame));
+		buffer.putShort((short) (FIXED_LENGTH + addr.length));
+		buffer.put((byte) VERSION);
+		buffer.put(frame.getType());
+		buffer.putInt(frame.getHopcount());
+		buffer.put((byte) frame.getItem());
+		buffer.putInt(frame.getSeqNum());
+		buffer.putInt(frame.getVia());
+		buffer.putInt(frame.getSourceIndex());
+		buffer.putShort((short) frame.getSourcePort());
+		buffer.put((byte) addr.length);
+		buffer.put(addr);
+		return buffer.array();
+	}
+
+	// The decode method reads a frame body of the provided length from a buffer whose length
+	// prefix has already been consumed. Throws an exception if the frame is malformed.
+	public static Frame decode(ByteBuffer buffer, int length) throws IOException{
+		if(length < FIXED_LENGTH || length > MAX_FRAME_LENGTH){
+			throw new IOException("Invalid frame length " + length);
+		}
+		int version = buffer.get() & 0xFF;
+		if(version != VERSION){
+			throw new IOException("Unsupported frame version " + version);
+		}
+		byte type = buffer.get();
+		int hopcount = buffer.getInt();
+		int item = buffer.get() & 0xFF;
+		int seqNum = buffer.getInt();
+		int via = buffer.getInt();
+		int sourceIndex = buffer.getInt();
+		int sourcePort = buffer.getShort() & 0xFFFF;
+		int addrLength = buffer.get() & 0xFF;
+		if(addrLength != length - FIXED_LENGTH){
+			throw new IOException("Invalid address length " + addrLength);
+		}
+		byte[] addr = new byte[addrLength];
+		buffer.get(addr);
+		return new Frame(type, hopcount, item, seqNum, via, sourceIndex, sourcePort, addr);
+	}
+
+	// The write method writes a frame to an output stream.
+	public static void write(Frame frame, OutputStream out) throws IOException{
+		out.write(encode(frame));
+		out.flush();
+	}
+
+	// The read method reads the next frame from an input stream. Returns null if the stream
+	// ends before a new frame starts.
+	public static Frame read(DataInputStream in) throws IOException{
+		int length;
+		try{
+			length = in.readUnsignedShort();
+		}
+		catch(EOFException e){
+			return null;
+		}
+		if(length > MAX_FRAME_LENGTH){
+			throw new IOException("Invalid frame length " + length);
+		}
+		byte[] body = new byte[length];
+		in.readFully(body);
+		return decode(ByteBuffer.wrap(body), length);
+	}
+
+}
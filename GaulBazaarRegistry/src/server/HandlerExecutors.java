@@ -0,0 +1,77 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package server;
+
+// Import statements
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * The HandlerExecutors class creates the executors that run a BaseServer's request handlers
+ * for a given ExecutorMode. Virtual threads are looked up at run time so that the code still
+ * builds for older Java versions; if the running JVM has no virtual threads the platform
+ * thread executors are used instead and a warning is logged. A pool of platform threads grows to
+ * a fixed number of threads, further handlers wait in its queue, and idle threads are let go.
+ */
+public class HandlerExecutors {
+
+	// Global variables
+	private static final int POOL_THREADS = Math.max(8, 4 * Runtime.getRuntime().availableProcessors()); // Threads of a platform pool
+
+	// Constructor method that takes no parameters.
+	public HandlerExecutors() {}
+
+	// The newPerTaskExecutor method returns an executor that runs every task on a new thread of
+	// the provided mode. In PLATFORM mode this is the same as starting a new Thread per task.
+	public static Executor newPerTaskExecutor(ExecutorMode mode){
+		if(mode == ExecutorMode.VIRTUAL){
+			ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+			if(virtual != null){
+				return virtual;
+			}
+		}
+		return new Executor(){
+			public void execute(Runnable task){
+				new Thread(task).start();
+			}
+		};
+	}
+
+	// The newHandlerPool method returns an executor for handlers of frames read by the server. In
+	// PLATFORM mode it has at most a fixed number of threads, later handlers wait in its queue
+	// and threads that stay idle for a minute are let go.
+	public static ExecutorService newHandlerPool(ExecutorMode mode){
+		if(mode == ExecutorMode.VIRTUAL){
+			ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+			if(virtual != null){
+				return virtual;
+			}
+		}
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(POOL_THREADS, POOL_THREADS, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>());
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+	// The newVirtualThreadPerTaskExecutor method calls Executors.newVirtualThreadPerTaskExecutor
+	// if the running JVM provides it, and returns null otherwise.
+	private static ExecutorService newVirtualThreadPerTaskExecutor(){
+		try{
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		}
+		catch(ReflectiveOperationException e){
+			Logger.getGlobal().log(Level.WARNING, "Virtual threads are not available, using platform threads");
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,36 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package server;
+
+/*
+ * The HypercubeOverlay class links every peer with the peers whose index differs from its own
+ * in exactly one bit. When the number of peers isn't a power of two the missing corners are left
+ * out, which keeps the overlay connected since clearing a bit always leads to an existing peer.
+ * Both the degree and the diameter are the number of bits of the largest peer index.
+ */
+public class HypercubeOverlay implements OverlayTopology {
+
+	// Constructor method, the hypercube has no parameters.
+	public HypercubeOverlay() {}
+
+	// The build method links every peer with each peer that is one bit flip away.
+	public int[][] build(int n){
+		OverlayLinks links = new OverlayLinks(n);
+		for(int i = 0; i < n; i++){
+			for(int bit = 1; bit < n; bit <<= 1){
+				int j = i ^ bit;
+				if(j < n){
+					links.link(i, j);
+				}
+			}
+		}
+		return links.toArrays();
+	}
+
+	// Lookups are flooded
+	public boolean isDirectional(){
+		return false;
+	}
+
+}
@@ -0,0 +1,205 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package server;
+
+// Import statements
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * The ItemDirectory class is the registry's index of which sellers currently sell which item,
+ * so that buyers in the directory mode can ask the registry for sellers instead of flooding
+ * lookups. Sellers publish their item whenever it changes. The index is split into shards by
+ * seller, each guarded by its own read-write lock, so a publication only holds up queries while
+ * it updates the shard of its seller. A shard keeps the sellers of every item in an array that
+ * is rebuilt when a seller is added or removed, so a query takes the arrays of the item from
+ * every shard and picks its sellers from them without copying. Every seller's publications
+ * carry a version, and a publication older than the seller's last one is ignored, since the
+ * registry's handlers may run a seller's frames out of order. The directory also counts
+ * publications and queries and the CPU time the registry spent handling them.
+ */
+public class ItemDirectory {
+
+	// Global variables
+	private Shard[] shards; // Sellers of every item, split by seller
+	private ConcurrentMap<Integer, Publication> sellers; // Last publication of every seller by peer index
+	private AtomicInteger cursor; // Rotates the first seller listed for a query
+	private AtomicLong publications; // Publications applied to the index
+	private AtomicLong queries; // Queries answered
+	private AtomicLong listings; // Sellers named in answers
+	private AtomicLong cpuNanos; // CPU time spent on directory frames in nanoseconds
+
+	// Constructor method that takes in the number of shards of the index.
+	public ItemDirectory(int shardCount) {
+		this.shards = new Shard[Math.max(1, shardCount)];
+		for(int i = 0; i < this.shards.length; i++){
+			this.shards[i] = new Shard();
+		}
+		this.sellers = new ConcurrentHashMap<>();
+		this.cursor = new AtomicInteger();
+		this.publications = new AtomicLong();
+		this.queries = new AtomicLong();
+		this.listings = new AtomicLong();
+		this.cpuNanos = new AtomicLong();
+	}
+
+	// The publish method records that the seller with the provided peer index now sells the
+	// item, or nothing if the item is -1. Returns false if a newer publication was already seen.
+	public boolean publish(int seller, int item, int version){
+		Publication publication = sellers.get(seller);
+		if(publication == null){
+			Publication newPublication = new Publication();
+			publication = sellers.putIfAbsent(seller, newPublication);
+			if(publication == null){
+				publication = newPublication;
+			}
+		}
+		synchronized(publication){
+			if(version <= publication.version){
+				return false;
+			}
+			publication.version = version;
+			if(publication.item != item){
+				shardOf(seller).move(seller, publication.item, item);
+				publication.item = item;
+			}
+		}
+		publications.incrementAndGet();
+		return true;
+	}
+
+	// The query method returns the peer indices of up to the provided number of sellers of the
+	// item. The first seller listed rotates from query to query to spread buyers over sellers.
+	public int[] query(int item, int limit){
+		int[][] parts = new int[shards.length][];
+		int total = 0;
+		for(int i = 0; i < shards.length; i++){
+			parts[i] = shards[i].get(item);
+			total += parts[i].length;
+		}
+		int[] found = new int[Math.max(0, Math.min(limit, total))];
+		if(found.length > 0){
+
+			// Walk the shards from the seller the rotation starts at, wrapping around at the end
+			int start = (cursor.getAndIncrement() & Integer.MAX_VALUE) % total;
+			int part = 0;
+			while(start >= parts[part].length){
+				start -= parts[part++].length;
+			}
+			for(int i = 0; i < found.length; i++){
+				while(start >= parts[part].length){
+					start = 0;
+					part = (part + 1) % parts.length;
+				}
+				found[i] = parts[part][start++];
+			}
+		}
+		queries.incrementAndGet();
+		listings.addAndGet(found.length);
+		return found;
+	}
+
+	// The addCpuTime method adds CPU time spent handling a directory frame.
+	public void addCpuTime(long nanos){
+		cpuNanos.addAndGet(nanos);
+	}
+
+	// Getter method for the number of queries answered
+	public long getQueries(){
+		return this.queries.get();
+	}
+
+	// The toString method returns the counters of the directory.
+	public String toString(){
+		return "Directory: " + publications.get() + " publications, " + queries.get() + " queries, " +
+				listings.get() + " listings, " + (cpuNanos.get() / 1000000) + " ms CPU";
+	}
+
+	// The shardOf method returns the shard that holds the items of a seller.
+	private Shard shardOf(int seller){
+		return shards[Math.abs(seller % shards.length)];
+	}
+
+	/*
+	 * The Publication class is the last item a seller published and its version.
+	 */
+	private static class Publication {
+
+		// Global variables
+		private int item = -1; // Item id the seller sells, -1 for none
+		private int version = -1; // Version of the last applied publication
+
+	}
+
+	/*
+	 * The Shard class holds the items of the sellers that fall into one part of the index. The
+	 * arrays of sellers are never changed once stored, so they may be read after the lock is
+	 * released.
+	 */
+	private static class Shard {
+
+		// Global variables
+		private static final int[] NONE = new int[0]; // Sellers of an item nobody sells
+		private Map<Integer, int[]> sellers = new HashMap<>(); // Peer indices of the sellers by item id
+		private ReentrantReadWriteLock lock = new ReentrantReadWriteLock(); // Guards the sellers
+
+		// The move method moves a seller from the item it sold to the item it sells now, either of
+		// which may be -1 for none.
+		public void move(int seller, int from, int to){
+			lock.writeLock().lock();
+			try{
+				if(from >= 0){
+					int[] itemSellers = sellers.get(from);
+					if(itemSellers != null){
+						int[] remaining = new int[itemSellers.length];
+						int count = 0;
+						for(int itemSeller : itemSellers){
+							if(itemSeller != seller){
+								remaining[count++] = itemSeller;
+							}
+						}
+						if(count == 0){
+							sellers.remove(from);
+						}
+						else{
+							sellers.put(from, Arrays.copyOf(remaining, count));
+						}
+					}
+				}
+				if(to >= 0){
+					int[] itemSellers = sellers.get(to);
+					if(itemSellers == null){
+						itemSellers = NONE;
+					}
+					int[] added = Arrays.copyOf(itemSellers, itemSellers.length + 1);
+					added[itemSellers.length] = seller;
+					sellers.put(to, added);
+				}
+			}
+			finally{
+				lock.writeLock().unlock();
+			}
+		}
+
+		// The get method returns the sellers of an item in this shard in the order they were added.
+		public int[] get(int item){
+			lock.readLock().lock();
+			try{
+				int[] itemSellers = sellers.get(item);
+				return itemSellers == null ? NONE : itemSellers;
+			}
+			finally{
+				lock.readLock().unlock();
+			}
+		}
+
+	}
+
+}
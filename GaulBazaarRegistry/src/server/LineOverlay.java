@@ -0,0 +1,37 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package server;
+
+/*
+ * The LineOverlay class links every peer with the peers within a neighbor radius of its peer
+ * index, on both sides. Lookups travel along the line away from their source, so the diameter
+ * and the cost of a lookup grow linearly with the number of peers.
+ */
+public class LineOverlay implements OverlayTopology {
+
+	// Global variables
+	private int neighborRadius; // Number of peers linked on each side of a peer
+
+	// Constructor method that takes in the neighbor radius.
+	public LineOverlay(int neighborRadius) {
+		this.neighborRadius = Math.max(1, neighborRadius);
+	}
+
+	// The build method links every peer with the peers up to the neighbor radius below it.
+	public int[][] build(int n){
+		OverlayLinks links = new OverlayLinks(n);
+		for(int i = 0; i < n; i++){
+			for(int k = 1; k <= neighborRadius && i - k >= 0; k++){
+				links.link(i, i - k);
+			}
+		}
+		return links.toArrays();
+	}
+
+	// Lookups are forwarded along the line
+	public boolean isDirectional(){
+		return true;
+	}
+
+}
@@ -0,0 +1,108 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package server;
+
+// Import statements
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/*
+ * The OverlayLinks class collects the undirected links of an overlay while an OverlayTopology
+ * builds it. Self-links and links that already exist are refused, so every implementation ends
+ * up with a simple graph whose neighbor lists agree in both directions. It also measures built
+ * overlays with breadth-first searches from their peers.
+ */
+class OverlayLinks {
+
+	// Global variables
+	private List<TreeSet<Integer>> neighbors; // Neighbor indices of every peer
+
+	// Constructor method that takes in the number of peers of the overlay.
+	public OverlayLinks(int n) {
+		this.neighbors = new ArrayList<>(n);
+		for(int i = 0; i < n; i++){
+			this.neighbors.add(new TreeSet<Integer>());
+		}
+	}
+
+	// The link method links two peers. Returns false if they are the same peer or already linked.
+	public boolean link(int a, int b){
+		if(a == b || isLinked(a, b)){
+			return false;
+		}
+		neighbors.get(a).add(b);
+		neighbors.get(b).add(a);
+		return true;
+	}
+
+	// The unlink method removes the link between two peers.
+	public void unlink(int a, int b){
+		neighbors.get(a).remove(b);
+		neighbors.get(b).remove(a);
+	}
+
+	// The isLinked method returns true if two peers are linked.
+	public boolean isLinked(int a, int b){
+		return neighbors.get(a).contains(b);
+	}
+
+	// The toArrays method returns the neighbor indices of every peer in ascending order.
+	public int[][] toArrays(){
+		int[][] adjacency = new int[neighbors.size()][];
+		for(int i = 0; i < adjacency.length; i++){
+			adjacency[i] = new int[neighbors.get(i).size()];
+			int count = 0;
+			for(int neighbor : neighbors.get(i)){
+				adjacency[i][count++] = neighbor;
+			}
+		}
+		return adjacency;
+	}
+
+	// The isConnected method returns true if every peer of the overlay can be reached from peer 0.
+	public static boolean isConnected(int[][] adjacency){
+		return adjacency.length == 0 || search(adjacency, 0, new int[adjacency.length]) >= 0;
+	}
+
+	// The diameter method estimates the largest number of hops between two peers of the overlay
+	// with a breadth-first search from peer 0 and another from the peer furthest from it, or
+	// returns -1 if some peers can't reach each other. Measuring it exactly would take a search
+	// from every peer. The estimate is never above the diameter and is usually equal to it.
+	public static int diameter(int[][] adjacency){
+		if(adjacency.length == 0){
+			return 0;
+		}
+		int[] hops = new int[adjacency.length];
+		int far = search(adjacency, 0, hops);
+		if(far < 0){
+			return -1;
+		}
+		far = search(adjacency, far, hops);
+		return hops[far];
+	}
+
+	// The search method runs a breadth-first search from the source peer, filling in the hops to
+	// every peer, and returns the peer furthest from it, or -1 if some peer wasn't reached.
+	private static int search(int[][] adjacency, int source, int[] hops){
+		Arrays.fill(hops, -1);
+		int[] queue = new int[adjacency.length];
+		int head = 0;
+		int tail = 0;
+		hops[source] = 0;
+		queue[tail++] = source;
+		while(head < tail){
+			int peer = queue[head++];
+			for(int neighbor : adjacency[peer]){
+				if(hops[neighbor] < 0){
+					hops[neighbor] = hops[peer] + 1;
+					queue[tail++] = neighbor;
+				}
+			}
+		}
+		return tail == adjacency.length ? queue[tail - 1] : -1;
+	}
+
+}
@@ -0,0 +1,22 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package server;
+
+/*
+ * The OverlayTopology interface is a strategy for linking the peers of the Bazaar network. The
+ * PeerRegistry builds the overlay for its maximum number of peers once and hands every new peer
+ * its neighbors from it. Links are undirected, so a peer is a neighbor of each of its neighbors.
+ */
+public interface OverlayTopology {
+
+	// The build method returns the neighbor indices of every peer of an overlay of n peers,
+	// indexed by peer index.
+	public int[][] build(int n);
+
+	// The isDirectional method returns true if lookups in this overlay are only forwarded away
+	// from their source's peer index, which only reaches every peer in a line overlay. Any other
+	// overlay floods lookups to every neighbor.
+	public boolean isDirectional();
+
+}
@@ -7,63 +7,90 @@ package server;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /*
  * The PeerRegistry monitor maintains a list of all peers by their listening sockets and
- * provides neighbors for peers when an addPeer method is called. All methods are synchronized 
- * to prevent issues that could arise if multiple new peers are accessing the registry
- * at the same time.
+ * provides neighbors for peers when an addPeer method is called. The neighbors come from an
+ * OverlayTopology that is built for the maximum number of peers when the registry is created,
+ * together with its diameter, which is the hopcount a lookup needs to reach every peer. All
+ * methods are synchronized to prevent issues that could arise if multiple new peers are
+ * accessing the registry at the same time.
  */
 public class PeerRegistry {
 	
-	// Global variables that track the maximum number of peers, the neighbor radius for each
-	// peer, what port number to assign the next new peer, and a list of registered peers
+	// Global variables that track the maximum number of peers, the links of the overlay, the
+	// overlay's default hopcount and forwarding rule, what port number to assign the next new
+	// peer, and a list of registered peers
 	private static int peerLimit;
-	private static int neighborRadius;
+	private static int[][] adjacency;
+	private static int hopcount;
+	private static boolean directional;
 	private static int nextPeerServerPort;
 	private static ArrayList<InetSocketAddress> socketAddrs;
 	
-	// Constructor method that takes in a maximum number of peers, neighbor radius and starting
-	// port number to initialize global variables.
-	@SuppressWarnings("static-access")
-	public PeerRegistry(int size, int neighborRadius, int portStart){
-		this.peerLimit = size;
-		this.neighborRadius = neighborRadius;
-		this.nextPeerServerPort = portStart;
-		this.socketAddrs = new ArrayList<>();
+	// Constructor method that takes in a maximum number of peers, the OverlayTopology the peers
+	// are linked in and starting port number to initialize global variables. If the overlay
+	// isn't connected the hopcount falls back to the largest possible distance between peers.
+	public PeerRegistry(int size, OverlayTopology overlay, int portStart){
+		PeerRegistry.peerLimit = size;
+		PeerRegistry.adjacency = overlay.build(size);
+		int diameter = OverlayLinks.diameter(PeerRegistry.adjacency);
+		PeerRegistry.hopcount = Math.max(1, diameter < 0 ? size - 1 : diameter);
+		PeerRegistry.directional = overlay.isDirectional();
+		PeerRegistry.nextPeerServerPort = portStart;
+		PeerRegistry.socketAddrs = new ArrayList<>();
 	}
 	
 	// The addPeer method takes in the IP address of a new peer and creates a new socket address
 	// for them and adds them to the registry. It then returns the peer's index in the registry
 	// as well as their listening port. Returns null if the maximum number of peers has already
 	// been reached.
-	@SuppressWarnings("static-access")
 	public synchronized int[] addPeer(InetAddress addr){
-		if(socketAddrs.size() <= peerLimit){
-			this.nextPeerServerPort++; // Next available port
-			socketAddrs.add(new InetSocketAddress(addr, this.nextPeerServerPort)); // Create socket address
-			int[] portData = {socketAddrs.size() - 1, this.nextPeerServerPort}; // Peer index and listening port
+		if(socketAddrs.size() < peerLimit){
+			PeerRegistry.nextPeerServerPort++; // Next available port
+			socketAddrs.add(new InetSocketAddress(addr, PeerRegistry.nextPeerServerPort)); // Create socket address
+			int[] portData = {socketAddrs.size() - 1, PeerRegistry.nextPeerServerPort}; // Peer index and listening port
 			return portData;
 		}
 		else return null;
 	}
 	
-	// The getNeighbors method takes a peer's index and provides their neighbors socket addresses.
-	// This method only provides neighbors with lower indices that the provided peer. Future peers
-	// will connect with this peer as well if it is within their neighbor radius. Returns a list
-	// of peerIDs.
-	public synchronized ArrayList<String> getNeighbors(int peerIndex){
-		if(peerIndex < 0 || peerIndex > socketAddrs.size()){ //Check that peer index is valid
+	// The getNeighbors method takes a peer's index and provides their neighbors peer indices.
+	// This method only provides the overlay neighbors with lower indices than the provided peer,
+	// which have already registered. Future peers will connect with this peer as well if it is
+	// one of their overlay neighbors. Returns an array of peer indices.
+	public synchronized int[] getNeighbors(int peerIndex){
+		if(peerIndex < 0 || peerIndex >= socketAddrs.size()){ //Check that peer index is valid
 			throw new IllegalArgumentException("Neighbor must be an existing peer.");
 		}
 		else{
-			ArrayList<String> neighborIDs = new ArrayList<>(); // Initialize list to be returned
-			for(int i = 1; i <= neighborRadius && peerIndex - i >= 0; i++){ //Iterate through neighbor radius
-				int neighborIndex = peerIndex - i; // Determine peer index
-				neighborIDs.add(socketAddrs.get(peerIndex - i).toString() + "|" + neighborIndex); //Construct and add neighbor peerID to list
+			int count = 0;
+			while(count < adjacency[peerIndex].length && adjacency[peerIndex][count] < peerIndex){ //Neighbor lists are ascending
+				count++;
 			}
-			return neighborIDs; //return list
+			return Arrays.copyOf(adjacency[peerIndex], count); //return array
 		}
 	}
+	
+	// Getter method for the maximum number of peers
+	public int getPeerLimit(){
+		return peerLimit;
+	}
+	
+	// Getter method for the default hopcount of lookups, the diameter of the overlay
+	public int getHopcount(){
+		return hopcount;
+	}
+	
+	// Getter method for the overlay's forwarding rule, sent to peers in the end frame
+	public int getForwardingRule(){
+		return directional ? Frame.FORWARD_DIRECTIONAL : Frame.FORWARD_FLOOD;
+	}
+	
+	// The getPeerAddress method takes a peer's index and provides their listening socket address.
+	public synchronized InetSocketAddress getPeerAddress(int peerIndex){
+		return socketAddrs.get(peerIndex);
+	}
 
 }
@@ -0,0 +1,93 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package server;
+
+// Import statements
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * The RandomRegularOverlay class links the peers into a random graph in which every peer has
+ * the same number of neighbors. Links are drawn by pairing up the free link ends of the peers
+ * at random, skipping pairs that would form a self-link or a second link between the same two
+ * peers. If the pairing gets stuck or the graph isn't connected it is drawn again. A random
+ * regular graph with three or more neighbors per peer almost always has a diameter that grows
+ * with the logarithm of the number of peers.
+ */
+public class RandomRegularOverlay implements OverlayTopology {
+
+	// Global variables
+	private static final int MAX_ATTEMPTS = 100; // Number of times the graph is drawn before giving up
+	private int degree; // Number of neighbors of every peer
+	private Random rand; // Draws the links
+
+	// Constructor method that takes in the number of neighbors of every peer and the seed the
+	// links are drawn with.
+	public RandomRegularOverlay(int degree, long seed) {
+		this.degree = Math.max(1, degree);
+		this.rand = new Random(seed);
+	}
+
+	// The build method draws random regular graphs until one is complete and connected. With an
+	// odd number of peers and an odd degree one peer is left with a neighbor less. If no graph
+	// works out the last one drawn is returned.
+	public int[][] build(int n){
+		int d = Math.min(degree, Math.max(0, n - 1));
+		int[][] adjacency = new int[n][0];
+		for(int attempt = 0; attempt < MAX_ATTEMPTS; attempt++){
+			OverlayLinks links = new OverlayLinks(n);
+			boolean complete = pair(links, n, d);
+			adjacency = links.toArrays();
+			if(complete && OverlayLinks.isConnected(adjacency)){
+				break;
+			}
+		}
+		return adjacency;
+	}
+
+	// The pair method links random pairs of free link ends until at most one is left. Returns
+	// false if the remaining ends can only be paired into self-links or existing links.
+	private boolean pair(OverlayLinks links, int n, int d){
+
+		// Every peer starts with d free link ends
+		List<Integer> ends = new ArrayList<>(n * d);
+		for(int i = 0; i < n; i++){
+			for(int k = 0; k < d; k++){
+				ends.add(i);
+			}
+		}
+
+		// Draw two ends at random and link them if they form a new link, giving up on this graph
+		// after a number of failed draws
+		int failures = 0;
+		while(ends.size() > 1){
+			int a = rand.nextInt(ends.size());
+			int b = rand.nextInt(ends.size());
+			if(a != b && links.link(ends.get(a), ends.get(b))){
+				removeEnd(ends, Math.max(a, b));
+				removeEnd(ends, Math.min(a, b));
+				failures = 0;
+			}
+			else if(++failures > ends.size() * ends.size()){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// The removeEnd method removes a link end by moving the last end into its place.
+	private static void removeEnd(List<Integer> ends, int position){
+		int last = ends.remove(ends.size() - 1);
+		if(position < ends.size()){
+			ends.set(position, last);
+		}
+	}
+
+	// Lookups are flooded
+	public boolean isDirectional(){
+		return false;
+	}
+
+}
@@ -5,97 +5,103 @@ package server;
 
 // Import statements
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.net.Socket;
-import java.util.ArrayList;
 import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /*
  * The RegistryServer class extends BaseServer and implements a handler (ClientRegistration) that 
- * allows clients to connect with it and become a peer in the Bazaar network.
+ * allows clients to connect with it and become a peer in the Bazaar network. In the directory
+ * mode peers also keep a connection to the RegistryServer open, over which sellers publish their
+ * item and buyers query the ItemDirectory for sellers (DirectoryRequest).
  */
 public class RegistryServer extends BaseServer {
 
-	// Global variables including one PeerRegistry monitor and a maximum number of peers
+	// Global variables including one PeerRegistry monitor
 	protected PeerRegistry registry;
-	protected int N;
+	protected ItemDirectory directory;
 	
-	// Constructor method that takes in a port number, PeerRegistry, and maximum number of peers
-	// to satisfy the BaseServer constructor and set the global variables.
-	public RegistryServer(int portNum, PeerRegistry registry, int N) {
-		super(portNum);
-		this.N = N;
+	// Constructor method that takes in a port number, PeerRegistry and ItemDirectory to satisfy the
+	// BaseServer constructor and set the global variables. The ServerMode, number of event loop
+	// threads and ExecutorMode determine how the BaseServer serves its clients.
+	public RegistryServer(int portNum, PeerRegistry registry, ItemDirectory directory, ServerMode mode,
+			int eventLoopThreads, ExecutorMode executorMode) {
+		super(portNum, mode, eventLoopThreads, executorMode);
 		this.registry = registry;
+		this.directory = directory;
 	}
 
-	// The getServerThread method logs when a new client connects to become a peer. It also creates
-	// a new thread to handle the client's registration. The method is provided with a socket connection
-	// that the client established with this listening server, which is used to create a ClientRegistration
-	// thread.
+	// The getRequestHandler method logs when a new client asks to become a peer. It also creates
+	// a handler for the client's registration. The method is provided with the register frame and
+	// the connection that the client established with this listening server, which is used to create
+	// a ClientRegistration. Publications and queries are handled by a DirectoryRequest. Frames of
+	// any other type are ignored.
 	@Override
-	public Thread getServerThread(Socket client) {
-		log.log(Level.INFO, "Client connected, remote socket: " + client.getRemoteSocketAddress());
-		return new ClientRegistration(client, registry, N);
+	public Runnable getRequestHandler(Frame frame, ClientConnection client) {
+		if(frame.getType() == Frame.PUBLISH || frame.getType() == Frame.QUERY){
+			return new DirectoryRequest(frame, client, registry, directory, log);
+		}
+		if(frame.getType() != Frame.REGISTER){
+			log.log(Level.WARNING, "Unexpected frame type " + frame.getType() + " from " + client.getRemoteAddress());
+			return new Runnable(){ public void run(){} };
+		}
+		log.log(Level.INFO, "Client connected, remote socket: " + client.getRemoteAddress());
+		return new ClientRegistration(client, registry);
 	}
 	
 	
 	/*
 	 * The ClientRegistration class is used to create objects that handle clients of the RegistryServer.
-	 * Each new client connection establishes a new Thread that then handles accessing the PeerRegistry
-	 * to obtain that clients peerID and neighbors. The ClientRegistration uses a socket connection to
-	 * send a client's peer information to them so they can begin buying or selling.
+	 * Each new registration is handled by a ClientRegistration that accesses the PeerRegistry
+	 * to obtain that clients peerID and neighbors. The ClientRegistration uses the client connection to
+	 * send a client's peer information to them as frames so they can begin buying or selling.
 	 */
-	private static class ClientRegistration extends Thread{
+	private static class ClientRegistration implements Runnable{
 		
-		// Global variables that include the socket with the client, the PeerRegistry monitor, and the
-		// maximum number of peers.
-		private Socket client;
+		// Global variables that include the connection with the client and the PeerRegistry monitor.
+		private ClientConnection client;
 		private PeerRegistry registry;
-		private int N;
 		
 		// Constructor method that takes in parameters to set the global variables
-		public ClientRegistration(Socket client, PeerRegistry registry, int N){
+		public ClientRegistration(ClientConnection client, PeerRegistry registry){
 			this.client = client;
 			this.registry = registry;
-			this.N = N;
 		}
 		
-		// Run method that defines the execution of this thread
+		// Run method that defines the handling of the client
 		public void run(){
 			
 			try{
-				
-				// Create a PrintWriter object to communicate with the client
-                PrintWriter msgToClient = new PrintWriter(client.getOutputStream(), true);
                 
-                // Determine the client's IP address from the socket connection
-                InetSocketAddress peerSocket = (InetSocketAddress)client.getRemoteSocketAddress();
+                // Determine the client's IP address from the client connection
+                InetSocketAddress peerSocket = client.getRemoteAddress();
                 InetAddress peerIP = peerSocket.getAddress();
                 
                 // Get the peer index and listening port number for the client
                 int[] peerIndexAndPort = registry.addPeer(peerIP);
                 
-                // If there is no more room for any more peers, a terminate message is sent to the client.
+                // If there is no more room for any more peers, a terminate frame is sent to the client.
                 if(peerIndexAndPort == null){
-                	msgToClient.println("terminate");
+                	client.send(new Frame(Frame.TERMINATE, 0, 0, 0, 0, 0, new byte[0]));
                 }
-                // Otherwise, construct and send the client's peerID
+                // Otherwise, send the client its peer index, listening port and IP address
                 else{
-                	String peerID = new InetSocketAddress(client.getInetAddress(), peerIndexAndPort[1]).toString();
-                	peerID += "|" + peerIndexAndPort[0];
-                	msgToClient.println(peerID);
+                	client.send(new Frame(Frame.PEER_ID, 0, 0, 0, peerIndexAndPort[0], peerIndexAndPort[1], peerIP.getAddress()));
                 	
-                	// Send the client their neighbor's peerIDs one at a time, followed by an end message
-                	ArrayList<String> neighborIDs = registry.getNeighbors(peerIndexAndPort[0]);
-            		for(String neighbor : neighborIDs){
-            			msgToClient.println(neighbor);
+                	// Send the client a frame for each of their neighbors
+                	int[] neighborIndices = registry.getNeighbors(peerIndexAndPort[0]);
+            		for(int neighborIndex : neighborIndices){
+            			InetSocketAddress neighborAddr = registry.getPeerAddress(neighborIndex);
+            			client.send(new Frame(Frame.NEIGHBOR, 0, 0, 0, neighborIndex, neighborAddr.getPort(), neighborAddr.getAddress().getAddress()));
             		}
-            		msgToClient.println("end");
             		
-            		// Send the client the maximum number of peers for hopcount determination
-            		msgToClient.println("" + N);
+            		// Send the client an end frame carrying the overlay's diameter as the default hopcount,
+            		// the overlay's forwarding rule and the maximum number of peers, which is the size of
+            		// the peer index space
+            		client.send(new Frame(Frame.END, registry.getHopcount(), registry.getForwardingRule(), registry.getPeerLimit(), 0, 0, new byte[0]));
 
                 }
 				
@@ -106,4 +112,64 @@ public class RegistryServer extends BaseServer {
 		
 	}
 
+	
+	/*
+	 * The DirectoryRequest class handles a single publication or query of the directory mode. A
+	 * query is answered with a LISTING frame for each seller of the item the ItemDirectory names,
+	 * followed by an END frame. The CPU time of every request is added to the directory's counters,
+	 * which are logged every 1000 queries.
+	 */
+	private static class DirectoryRequest implements Runnable{
+		
+		// Global variables that include the frame, the connection with the client, the PeerRegistry
+		// monitor that holds the sellers' addresses and the ItemDirectory.
+		private Frame frame;
+		private ClientConnection client;
+		private PeerRegistry registry;
+		private ItemDirectory directory;
+		private Logger log;
+		
+		// Constructor method that takes in parameters to set the global variables
+		public DirectoryRequest(Frame frame, ClientConnection client, PeerRegistry registry, ItemDirectory directory, Logger log){
+			this.frame = frame;
+			this.client = client;
+			this.registry = registry;
+			this.directory = directory;
+			this.log = log;
+		}
+		
+		// Run method that defines the handling of the frame
+		public void run(){
+			ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+			long cpuStart = threads.getCurrentThreadCpuTime();
+			try{
+				
+				// Record the seller's item, a hopcount of 0 means it sells nothing
+				if(frame.getType() == Frame.PUBLISH){
+					directory.publish(frame.getSourceIndex(), frame.getHopcount() > 0 ? frame.getItem() : -1, frame.getSeqNum());
+				}
+				
+				// Send the buyer a listing frame for every seller found and an end frame
+				else{
+					int[] sellers = directory.query(frame.getItem(), frame.getHopcount());
+					for(int seller : sellers){
+						InetSocketAddress sellerAddr = registry.getPeerAddress(seller);
+						client.send(new Frame(Frame.LISTING, 0, frame.getItem(), frame.getSeqNum(), seller, sellerAddr.getPort(), sellerAddr.getAddress().getAddress()));
+					}
+					client.send(new Frame(Frame.END, 0, frame.getItem(), frame.getSeqNum(), 0, 0, new byte[0]));
+					if(directory.getQueries() % 1000 == 0){
+						log.log(Level.INFO, directory.toString());
+					}
+				}
+			}
+			catch(IOException e){ System.out.println(e.getMessage()); }
+			finally{
+				if(cpuStart >= 0){
+					directory.addCpuTime(threads.getCurrentThreadCpuTime() - cpuStart);
+				}
+			}
+		}
+		
+	}
+
 }
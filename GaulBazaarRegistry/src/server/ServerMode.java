@@ -0,0 +1,14 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package server;
+
+/*
+ * The ServerMode enum selects how a BaseServer serves its clients. THREAD creates a new thread
+ * for every accepted connection, SELECTOR serves all connections from a small number of
+ * selector event loop threads.
+ */
+public enum ServerMode {
+	THREAD,
+	SELECTOR
+}
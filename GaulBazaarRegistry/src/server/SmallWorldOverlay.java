@@ -0,0 +1,85 @@
+// Isaac A. Vawter, SID: 28277700
+
+// Package declaration
+package server;
+
+// Import statements
+import java.util.Random;
+
+/*
+ * The SmallWorldOverlay class builds a Watts-Strogatz small-world graph. The peers are placed on
+ * a ring and linked with the peers within half the degree on each side, then every link is
+ * rewired to a random peer with the rewiring probability. A few rewired links act as shortcuts
+ * across the ring, which brings the diameter down to about the logarithm of the number of peers
+ * while most neighbors stay close to each other. Rewiring may cut a group of peers off from the
+ * rest, so the links are rewired again until every peer can be reached, and after too many tries
+ * the ring is left as it is.
+ */
+public class SmallWorldOverlay implements OverlayTopology {
+
+	// Global variables
+	private static final int ATTEMPTS = 100; // Number of times the links are rewired before the ring is kept
+	private int degree; // Number of neighbors of every peer on the ring before rewiring
+	private double rewire; // Probability that a link is rewired
+	private Random rand; // Draws the rewired links
+
+	// Constructor method that takes in the degree of the ring, the rewiring probability and the
+	// seed the rewired links are drawn with.
+	public SmallWorldOverlay(int degree, double rewire, long seed) {
+		this.degree = Math.max(2, degree);
+		this.rewire = Math.min(1.0, Math.max(0.0, rewire));
+		this.rand = new Random(seed);
+	}
+
+	// The build method returns a connected rewired ring, or the ring without rewiring if no
+	// connected rewiring was drawn.
+	public int[][] build(int n){
+		for(int attempt = 0; attempt < ATTEMPTS; attempt++){
+			int[][] adjacency = rewire(ring(n), n);
+			if(OverlayLinks.isConnected(adjacency)){
+				return adjacency;
+			}
+		}
+		return ring(n).toArrays();
+	}
+
+	// The ring method links every peer with the peers within the radius on both sides of the ring.
+	private OverlayLinks ring(int n){
+		OverlayLinks links = new OverlayLinks(n);
+		int radius = Math.min(degree / 2, n / 2);
+		for(int i = 0; i < n; i++){
+			for(int k = 1; k <= radius; k++){
+				links.link(i, (i + k) % n);
+			}
+		}
+		return links;
+	}
+
+	// The rewire method rewires the links of the ring. A link keeps its first peer and gets a
+	// random second peer, and is left in place if that peer would form a self-link or a second
+	// link between the same two peers.
+	private int[][] rewire(OverlayLinks links, int n){
+		int radius = Math.min(degree / 2, n / 2);
+
+		// Rewire each clockwise link of the ring with the rewiring probability
+		for(int k = 1; k <= radius; k++){
+			for(int i = 0; i < n; i++){
+				int j = (i + k) % n;
+				if(rand.nextDouble() < rewire && links.isLinked(i, j)){
+					int target = rand.nextInt(n);
+					if(target != i && !links.isLinked(i, target)){
+						links.unlink(i, j);
+						links.link(i, target);
+					}
+				}
+			}
+		}
+		return links.toArrays();
+	}
+
+	// Lookups are flooded
+	public boolean isDirectional(){
+		return false;
+	}
+
+}